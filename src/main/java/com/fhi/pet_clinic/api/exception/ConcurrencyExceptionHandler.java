@@ -0,0 +1,60 @@
+package com.fhi.pet_clinic.api.exception;
+
+import java.time.Instant;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.fhi.pet_clinic.service.exception.PreconditionFailedException;
+import com.fhi.pet_clinic.service.exception.StaleVersionException;
+
+
+/**
+ * Translates concurrent modification failures (see the {@code @Version} of Pet and Owner) into
+ * HTTP responses, with the same body as {@link MatingExceptionHandler}'s.
+ *
+ *  - 412 (Precondition Failed): the client's If-Match no longer matches the current version, or can't
+ *    match any (a weak tag, or * on an entity that doesn't exist)
+ *  - 409 (Conflict): the version given in the body is stale, or a full update (PUT) lost a race
+ *    against another one
+ */
+@RestControllerAdvice
+public class ConcurrencyExceptionHandler
+{
+    @ExceptionHandler(StaleVersionException.class)
+    public ResponseEntity<Map<String, Object>> handleStaleVersion(StaleVersionException ex)
+    {
+        HttpStatus status = ex.isPrecondition() ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+        return ResponseEntity.status(status)
+                             .eTag("\"" + ex.getCurrentVersion() + "\"")
+                             .body(body("STALE_VERSION", ex.getMessage()));
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Map<String, Object>> handlePreconditionFailed(PreconditionFailedException ex)
+    {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                             .body(body("PRECONDITION_FAILED", ex.getMessage()));
+    }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex)
+    {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                             .body(body("CONCURRENT_UPDATE", "Updated concurrently, please retry"));
+    }
+
+
+    private static Map<String, Object> body(String code, String message)
+    {
+        return Map.of(
+            "timestamp", Instant.now().toString(),
+            "code"     , code,
+            "message"  , message
+        );
+    }
+}
@@ -0,0 +1,34 @@
+package com.fhi.pet_clinic.api.exception;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+
+/**
+ * Translates a job submission refused by a full queue (see JobService) into a 503 (Service Unavailable),
+ * with a Retry-After header, and the same body as {@link MatingExceptionHandler}'s.
+ */
+@RestControllerAdvice
+public class JobExceptionHandler
+{
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejected(RejectedExecutionException ex)
+    {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                             .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                             .body(Map.of(
+                                 "timestamp", Instant.now().toString(),
+                                 "code"     , "TOO_MANY_JOBS",
+                                 "message"  , "Too many jobs queued, please retry later"
+                             ));
+    }
+}
@@ -2,16 +2,61 @@ package com.fhi.pet_clinic.config;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.hibernate6.Hibernate6Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.lang.Nullable;
 
+/**
+ * Jackson, for the HTTP API and everything else that injects the {@link ObjectMapper}.
+ *
+ * Wire formats, negotiated from the request's Accept header (see WireFormatBenchmark for sizes and speeds):
+ * - application/json (and no Accept header): compact JSON, no whitespace;
+ * - application/json with ?pretty (or pretty=true): indented JSON, for humans;
+ * - application/x-jackson-smile, application/cbor: binary JSON, for service-to-service consumers.
+ * All three are written by mappers with the same configuration. Responses vary by Accept, and their ETag
+ * is weak unless they are in the default encoding, compact JSON (see WireFormatAdvice).
+ *
+ * Bean (de)serializers: with jackson.bytecode-accessors (the default), the Blackbird module replaces
+ * their reflective getter/setter/field calls with accessors generated at startup (LambdaMetafactory),
+ * which the JIT inlines like hand-written code. Same output, see JacksonSerializerBenchmark.
+ */
 @Configuration
 public class JacksonConfig 
 {
+   /** Query parameter asking for indented JSON, e.g. GET /api/pets?pretty */
+   public static final String PRETTY_PARAMETER = "pretty";
+
+   /**
+    * Set as the filters of a {@link org.springframework.http.converter.json.MappingJacksonValue} to have
+    * it indented by jsonConverter. Defines no filter: our beans have no {@code @JsonFilter}.
+    */
+   public static final FilterProvider PRETTY_PRINT = new SimpleFilterProvider().setFailOnUnknownId(false);
+
+   private final boolean bytecodeAccessors;
+
+
+   public JacksonConfig(@Value("${jackson.bytecode-accessors:true}") boolean bytecodeAccessors)
+   {  this.bytecodeAccessors = bytecodeAccessors;
+   }
+
+
    /**
     * Provides a customized {@link ObjectMapper}
     * - allowing JSON comments 
@@ -21,14 +66,58 @@ public class JacksonConfig
     *   @Autowired
     *   private ObjectMapper objectMapper;  // <= this objectMapper defined below
     * is used.
+    *
+    * It writes compact JSON: INDENT_OUTPUT added a newline and indentation before every field of every
+    * response, to be written, sent and parsed. Pretty printing is now asked for per request, see jsonConverter.
     */
     @Bean
     public ObjectMapper objectMapper() {
-        return new ObjectMapper()
-                .configure(JsonParser.Feature.ALLOW_COMMENTS, true)                       // // and /* */ comments in JSON
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)     // allows _comment fields etc.
-                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)                 // write "2025-07-15", not [2025,7,15]
-                .registerModule(new JavaTimeModule())                                    // support for java.time.* (Java 8 "modern" time types)
-                .enable(SerializationFeature.INDENT_OUTPUT);                             // for pretty print
+        return configure(new ObjectMapper());
+    }
+
+    /**
+     * Writes JSON with the mapper above, indented when the body comes with the {@link #PRETTY_PRINT}
+     * filters, i.e. when the request has the {@value #PRETTY_PARAMETER} parameter (see WireFormatAdvice).
+     * Replaces Spring Boot's default JSON converter.
+     */
+    @Bean
+    public MappingJackson2HttpMessageConverter jsonConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable JavaType javaType, @Nullable MediaType contentType) {
+                return writer.getConfig().getFilterProvider() == PRETTY_PRINT ? writer.withDefaultPrettyPrinter() : writer;
+            }
+        };
+    }
+
+    /**
+     * Smile: binary JSON (same data model), smaller and faster to write and read than JSON text.
+     * Replaces the default Smile converter, whose mapper has none of our settings (e.g. dates as arrays).
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(configure(new SmileMapper()));
+    }
+
+    /**
+     * CBOR (RFC 8949): binary JSON with decoders in most languages. Same remark as Smile.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborConverter() {
+        return new MappingJackson2CborHttpMessageConverter(configure(new CBORMapper()));
+    }
+
+
+    private <M extends ObjectMapper> M configure(M mapper) {
+        mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true)                           // // and /* */ comments in JSON
+              .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)         // allows _comment fields etc.
+              .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)                     // write "2025-07-15", not [2025,7,15]
+              .registerModule(new JavaTimeModule())                                        // support for java.time.* (Java 8 "modern" time types)
+              .registerModule(new Hibernate6Module()                                       // lazy associations: not loaded, written as {"id": ...}
+                              .enable(Hibernate6Module.Feature.SERIALIZE_IDENTIFIER_FOR_LAZY_NOT_LOADED_OBJECTS));
+        if (bytecodeAccessors) {
+            mapper.registerModule(new BlackbirdModule());                                  // generated accessors instead of reflection
+        }
+        return mapper;
     }
 }
@@ -0,0 +1,55 @@
+package com.fhi.pet_clinic.config;
+
+import java.io.InputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import com.fhi.pet_clinic.dto.ImportReport;
+import com.fhi.pet_clinic.service.BulkImportService;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Imports owners with their pets from a JSON file when the application starts, through the same
+ * streaming, chunked import as {@code POST /owners/import}.
+ *
+ * <p>Enabled by setting:
+ * <pre>
+ *   data-import.startup.enabled=true
+ *   data-import.startup.location=classpath:data.json   # or file:/path/to/clinic.json
+ * </pre>
+ * Invalid records are logged and skipped; they don't prevent the application from starting.</p>
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "data-import.startup.enabled", havingValue = "true", matchIfMissing = false)
+public class StartupDataImporter implements ApplicationRunner
+{
+   private final BulkImportService bulkImportService;
+   private final Resource          location;
+
+
+   public StartupDataImporter(BulkImportService bulkImportService,
+                              @Value("${data-import.startup.location:classpath:data.json}") Resource location)
+   {  this.bulkImportService = bulkImportService;
+      this.location          = location;
+   }
+
+
+   @Override
+   public void run(ApplicationArguments args) throws Exception
+   {
+      log.info("Importing owners and pets from {}", location);
+      ImportReport report;
+      try (InputStream in = location.getInputStream())
+      {  report = bulkImportService.importOwners(in);
+      }
+      report.getErrors().forEach(e -> log.warn("Not imported: {}: {}", e.getRecord(), e.getMessage()));
+   }
+}
@@ -0,0 +1,79 @@
+package com.fhi.pet_clinic.config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+
+/**
+ * Applies the wire format choices of {@link JacksonConfig} to every body written by Jackson (JSON, Smile
+ * or CBOR), once the format is negotiated:
+ *
+ *  - {@code ?pretty}: JSON bodies are marked to be indented ({@link JacksonConfig#PRETTY_PRINT});
+ *  - {@code Vary: Accept}: the same URL has several representations, caches must key them by Accept;
+ *  - an ETag set by the controller (the entity version) is made weak unless the body is compact JSON:
+ *    pretty JSON, Smile and CBOR carry the same data in other bytes, so they are only weakly equal to the
+ *    default representation. Strong tags are required by If-Match (see EntityTags.parseIfMatch).
+ */
+@RestControllerAdvice
+public class WireFormatAdvice extends AbstractMappingJacksonResponseBodyAdvice
+{
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue body, MediaType contentType, MethodParameter returnType,
+                                           ServerHttpRequest request, ServerHttpResponse response)
+    {
+        boolean json   = MediaType.APPLICATION_JSON.equalsTypeAndSubtype(contentType);
+        boolean pretty = json && prettyRequested(request);
+        if (pretty)
+        {
+            body.setFilters(JacksonConfig.PRETTY_PRINT);
+        }
+
+        HttpHeaders headers = response.getHeaders();
+        if (!headers.getVary().contains(HttpHeaders.ACCEPT))
+        {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String etag = headers.getETag();
+        if (etag != null && !etag.startsWith("W/") && (pretty || !json))
+        {
+            setETag(response, "W/" + etag);
+        }
+    }
+
+
+    /**
+     * For a GET or HEAD, Spring has already moved the controller's ETag to the servlet response, to check
+     * If-None-Match: it is replaced there, as setting it in the headers here would add a second one.
+     */
+    private static void setETag(ServerHttpResponse response, String etag)
+    {
+        if (response instanceof ServletServerHttpResponse servletResponse
+                && servletResponse.getServletResponse().containsHeader(HttpHeaders.ETAG))
+        {
+            servletResponse.getServletResponse().setHeader(HttpHeaders.ETAG, etag);
+        }
+        else
+        {
+            response.getHeaders().setETag(etag);
+        }
+    }
+
+
+    private static boolean prettyRequested(ServerHttpRequest request)
+    {
+        if (request instanceof ServletServerHttpRequest servletRequest)
+        {
+            String pretty = servletRequest.getServletRequest().getParameter(JacksonConfig.PRETTY_PARAMETER);
+            return pretty != null && !pretty.equalsIgnoreCase("false");   // "?pretty" alone counts
+        }
+        return false;
+    }
+}
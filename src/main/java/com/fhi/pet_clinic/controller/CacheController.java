@@ -0,0 +1,40 @@
+package com.fhi.pet_clinic.controller;
+
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fhi.pet_clinic.dto.CacheRegionStats;
+import com.fhi.pet_clinic.service.CacheStatisticsService;
+
+import lombok.RequiredArgsConstructor;
+
+
+@RestController
+@RequestMapping("/api/cache")
+@RequiredArgsConstructor
+public class CacheController
+{
+   private final CacheStatisticsService cacheStatisticsService;
+
+
+   /**
+    * Hit / miss / put counters of each second-level cache region, since startup.
+    * 503 when Hibernate statistics are off (hibernate.generate_statistics).
+    *
+    * Example:
+    *   GET /api/cache/statistics
+    */
+   @GetMapping("/statistics")
+   public ResponseEntity<List<CacheRegionStats>> getStatistics()
+   {
+      if (!cacheStatisticsService.isEnabled())
+      {  return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+      }
+      return ResponseEntity.ok(cacheStatisticsService.getRegionStatistics());
+   }
+}
@@ -0,0 +1,89 @@
+package com.fhi.pet_clinic.controller;
+
+import java.util.Optional;
+
+import com.fhi.pet_clinic.service.exception.PreconditionFailedException;
+
+
+/**
+ * Entity tags (ETag / If-Match / If-None-Match headers) of versioned entities: the {@code @Version},
+ * quoted. Representations that include more than the entity (an owner with its pets) append a
+ * fingerprint of the rest: {@code "version.fingerprint"}. Unversioned representations are tagged with
+ * a hash of their content.
+ */
+final class EntityTags
+{
+   private EntityTags() {}
+
+
+   static String of(long version)
+   {  return "\"" + version + "\"";
+   }
+
+   static String of(long version, long fingerprint)
+   {  return "\"" + version + "." + Long.toHexString(fingerprint) + "\"";
+   }
+
+   static String of(String hash)
+   {  return "\"" + hash + "\"";
+   }
+
+
+   /**
+    * The entity tag of an {@code If-None-Match} header matching the current tag, as the client sent it:
+    * {@code *}, or the tag among a comma-separated list, compared weakly (as RFC 9110 specifies for
+    * If-None-Match, so that a weak tag of a pretty/Smile/CBOR representation matches too). A 304 echoes it.
+    *
+    * @return empty if there's no header or no candidate matches
+    */
+   static Optional<String> findMatch(String ifNoneMatch, String tag)
+   {
+      if (ifNoneMatch == null) return Optional.empty();
+      for (String candidate : ifNoneMatch.split(","))
+      {  candidate = candidate.trim();
+         if (candidate.equals("*")) return Optional.of(tag);
+         if (candidate.equals(tag) || candidate.equals("W/" + tag)) return Optional.of(candidate);
+      }
+      return Optional.empty();
+   }
+
+
+   /**
+    * The version expected by an {@code If-Match} header: {@code null} if there's no header or it is
+    * {@code *} (any version, but the entity must exist: see {@link #isAny}). A fingerprint, if any, is
+    * ignored: a PATCH only changes the entity itself.
+    *
+    * @throws PreconditionFailedException a weak tag: If-Match compares tags strongly (RFC 9110), so
+    *                                     it can't match, whatever the version
+    * @throws IllegalArgumentException    not one of our entity tags (or a list of several)
+    */
+   static Long parseIfMatch(String ifMatch)
+   {
+      if (ifMatch == null || ifMatch.isBlank() || isAny(ifMatch))
+      {  return null;
+      }
+      String tag = ifMatch.trim();
+      if (tag.startsWith("W/"))
+      {  throw new PreconditionFailedException("Weak entity tags never match If-Match: " + ifMatch);
+      }
+      if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"')
+      {  throw new IllegalArgumentException("Invalid If-Match: " + ifMatch);
+      }
+      String value = tag.substring(1, tag.length() - 1);
+      int dot = value.indexOf('.');
+      try
+      {  return Long.parseLong(dot < 0 ? value : value.substring(0, dot));
+      }
+      catch (NumberFormatException e)
+      {  throw new IllegalArgumentException("Invalid If-Match: " + ifMatch, e);
+      }
+   }
+
+   /**
+    * Whether an {@code If-Match} header is {@code *}: it matches any version, but fails (412) if the
+    * entity doesn't exist.
+    */
+   static boolean isAny(String ifMatch)
+   {  return ifMatch != null && ifMatch.trim().equals("*");
+   }
+}
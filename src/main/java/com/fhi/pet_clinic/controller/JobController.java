@@ -0,0 +1,275 @@
+package com.fhi.pet_clinic.controller;
+
+import lombok.RequiredArgsConstructor;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fhi.pet_clinic.dto.BulkDeleteResult;
+import com.fhi.pet_clinic.dto.GenerationStats;
+import com.fhi.pet_clinic.dto.JobStatus;
+import com.fhi.pet_clinic.dto.SimulationReport;
+import com.fhi.pet_clinic.service.BulkImportService;
+import com.fhi.pet_clinic.service.ExportService;
+import com.fhi.pet_clinic.service.JobService;
+import com.fhi.pet_clinic.service.JobService.Job;
+import com.fhi.pet_clinic.service.OwnerService;
+import com.fhi.pet_clinic.service.PetService;
+import com.fhi.pet_clinic.service.PopulationSimulator;
+
+
+/**
+ * Background versions of the long bulk operations (see JobService): each POST answers 202 (Accepted)
+ * at once, with the job's status and its URL in the Location header. Then:
+ *
+ *   GET /api/jobs/{id}          state and progress (404 once forgotten)
+ *   GET /api/jobs/{id}/result   the result once succeeded (409 before, or if it failed): a JSON
+ *                               report, or the exported file, streamed from disk
+ *
+ * The synchronous endpoints remain, for small volumes.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobController
+{
+    private final JobService jobService;
+    private final BulkImportService bulkImportService;
+    private final ExportService exportService;
+    private final PetService petService;
+    private final OwnerService ownerService;
+    private final PopulationSimulator populationSimulator;
+
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobStatus> getJob(@PathVariable String id) {
+        return jobService.find(id)
+                .map(job -> ResponseEntity.ok(statusOf(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * The result file is streamed from an open stream, not a path: the job can be forgotten meanwhile,
+     * the file is only deleted once the stream is closed, when the response has been written.
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Object> getJobResult(@PathVariable String id) throws IOException {
+        Optional<Job> found = jobService.find(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Job job = found.get();
+        if (job.getState() != JobStatus.State.SUCCEEDED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(statusOf(job));
+        }
+        Optional<InputStream> file = job.openResultFile();
+        if (file.isPresent()) {
+            return ResponseEntity.ok()
+                                 .contentType(MediaType.parseMediaType(job.getResultContentType()))
+                                 .body(new InputStreamResource(file.get()));   // closed by the converter
+        }
+        if (job.getResultContentType() != null) {
+            return ResponseEntity.notFound().build();   // had a file, but forgotten since: deleted
+        }
+        return job.getResult()
+                  .map(ResponseEntity::ok)
+                  .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+
+    /**
+     * Same as POST /owners/import. The body is first copied to a temporary file (the request ends before
+     * the job runs); progress is counted in bytes of it read.
+     */
+    @PostMapping(value = "/owner-imports", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JobStatus> importOwners(InputStream body) throws IOException {
+        Path input = Files.createTempFile("owner-import-", ".json");
+        try {
+            Files.copy(body, input, StandardCopyOption.REPLACE_EXISTING);
+            return accepted(jobService.submit("owner-import", job -> {
+                try (InputStream in = new CountingInputStream(Files.newInputStream(input), job)) {
+                    job.expect(Files.size(input), "bytes");
+                    return bulkImportService.importOwners(in);
+                } finally {
+                    Files.deleteIfExists(input);
+                }
+            }));
+        } catch (IOException | RejectedExecutionException e) {
+            Files.deleteIfExists(input);
+            throw e;
+        }
+    }
+
+    /**
+     * Same as GET /api/pets/export: the result is the NDJSON file. Progress in bytes written.
+     */
+    @PostMapping("/pet-exports")
+    public ResponseEntity<JobStatus> exportPets() {
+        return accepted(jobService.submit("pet-export", job -> {
+            job.expect(null, "bytes");
+            try (OutputStream out = new CountingOutputStream(job.openResultFile(MediaType.APPLICATION_NDJSON_VALUE), job)) {
+                exportService.exportPets(out);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Same as GET /owners/export, see {@link #exportPets}.
+     */
+    @PostMapping("/owner-exports")
+    public ResponseEntity<JobStatus> exportOwners() {
+        return accepted(jobService.submit("owner-export", job -> {
+            job.expect(null, "bytes");
+            try (OutputStream out = new CountingOutputStream(job.openResultFile(MediaType.APPLICATION_NDJSON_VALUE), job)) {
+                exportService.exportOwners(out);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Same as POST /api/pets/bulk-delete, except that each chunk of {@value PetService#BULK_DELETE_CHUNK}
+     * ids is committed on its own: the job's progress tells how far it went, should it fail.
+     */
+    @PostMapping("/pet-deletions")
+    public ResponseEntity<JobStatus> deletePets(@RequestBody List<Long> ids) {
+        List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        return accepted(jobService.submit("pet-deletion", job -> deleteInChunks(distinctIds, "pets", job, petService::deletePets)));
+    }
+
+    /**
+     * Same as POST /owners/bulk-delete, committed in chunks as {@link #deletePets}.
+     */
+    @PostMapping("/owner-deletions")
+    public ResponseEntity<JobStatus> deleteOwners(@RequestBody List<Long> ids) {
+        List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        return accepted(jobService.submit("owner-deletion", job -> deleteInChunks(distinctIds, "owners", job, ownerService::deleteOwners)));
+    }
+
+    /**
+     * Same as POST /api/simulations, the statistics of all generations being returned in one report
+     * (with the seed). Progress in generations. Invalid parameters (e.g. unknown species) fail the job.
+     */
+    @PostMapping("/simulations")
+    public ResponseEntity<JobStatus> simulate(@RequestParam String species,
+                                              @RequestParam(defaultValue = "10") int generations,
+                                              @RequestParam(required = false) Long seed) {
+        return accepted(jobService.submit("simulation", job -> {
+            job.expect((long) generations, "generations");
+            PopulationSimulator.Simulation simulation = populationSimulator.prepare(species, generations, seed);
+            List<GenerationStats> stats = new ArrayList<>(generations);
+            simulation.run(generation -> {
+                stats.add(generation);
+                job.advance(1);
+            });
+            return new SimulationReport(simulation.getSeed(), stats);
+        }));
+    }
+
+
+    private static BulkDeleteResult deleteInChunks(List<Long> ids, String unit, Job job,
+                                                   Function<List<Long>, BulkDeleteResult> delete) {
+        job.expect((long) ids.size(), unit);
+        int deleted = 0;
+        for (int from = 0; from < ids.size(); from += PetService.BULK_DELETE_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + PetService.BULK_DELETE_CHUNK, ids.size()));
+            deleted += delete.apply(chunk).getDeleted();
+            job.advance(chunk.size());
+        }
+        return new BulkDeleteResult(ids.size(), deleted);
+    }
+
+    private static ResponseEntity<JobStatus> accepted(Job job) {
+        return ResponseEntity.accepted()
+                             .location(URI.create("/api/jobs/" + job.getId()))
+                             .body(statusOf(job));
+    }
+
+    private static JobStatus statusOf(Job job) {
+        return job.toStatus("/api/jobs/" + job.getId() + "/result");
+    }
+
+
+    /**
+     * Counts the bytes read as the job's progress.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final Job job;
+
+        CountingInputStream(InputStream in, Job job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) job.advance(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) job.advance(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            job.advance(skipped);
+            return skipped;
+        }
+    }
+
+    /**
+     * Counts the bytes written as the job's progress.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final Job job;
+
+        CountingOutputStream(OutputStream out, Job job) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            job.advance(1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);   // not FilterOutputStream's byte-by-byte loop
+            job.advance(length);
+        }
+    }
+}
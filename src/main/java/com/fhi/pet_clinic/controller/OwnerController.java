@@ -2,22 +2,41 @@ package com.fhi.pet_clinic.controller;
 
 import lombok.RequiredArgsConstructor;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fhi.pet_clinic.dto.BulkDeleteResult;
+import com.fhi.pet_clinic.dto.ImportReport;
+import com.fhi.pet_clinic.dto.MultiGetResult;
+import com.fhi.pet_clinic.dto.OwnerDto;
+import com.fhi.pet_clinic.dto.PetDto;
 import com.fhi.pet_clinic.model.Owner;
-import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.service.BulkImportService;
+import com.fhi.pet_clinic.service.ExportService;
 import com.fhi.pet_clinic.service.OwnerService;
+import com.fhi.pet_clinic.service.exception.PreconditionFailedException;
+
+import jakarta.persistence.EntityNotFoundException;
 
 
 @RestController
@@ -26,12 +45,71 @@ import com.fhi.pet_clinic.service.OwnerService;
 public class OwnerController 
 {
     private final OwnerService ownerService;
+    private final ExportService exportService;
+    private final BulkImportService bulkImportService;
+
+    /**
+     * Exports all owners as newline-delimited JSON, streamed as they are read (see ExportService).
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOwners() {
+        StreamingResponseBody body = exportService::exportOwners;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Imports a JSON array of owners with their nested pets, read from the request body as it arrives
+     * (see BulkImportService). Invalid records are skipped and listed in the report.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportReport> importOwners(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(bulkImportService.importOwners(body));
+        }
+        catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Returns the given owners (with their pets), in the order asked for, with the ids that matched
+     * no owner. Two queries whatever the number of ids, see OwnerService.getOwnerDtosByIds.
+     *
+     * Example: GET /owners?ids=3,1,2
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResult<OwnerDto>> getOwnersByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(ownerService.getOwnerDtosByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
+    /**
+     * Returns an owner with its pets. The ETag covers both: {@code "ownerVersion.petsFingerprint"}
+     * (see OwnerService.Revision); it is accepted as If-Match by PATCH, which only checks the owner's version.
+     *
+     * <p>Conditional GET: with that ETag in {@code If-None-Match}, a 304 as long as neither the owner nor
+     * its pets changed, checked without building the representation (see OwnerService.getOwnerRevision).</p>
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Owner> getOwnerById(@PathVariable Long id) {
-        return ResponseEntity.ok(ownerService.getOwnerById(id)
-                                            //# .mapToDto()   // for the time being we'll be returning the entity directly
-                                            );
+    public ResponseEntity<OwnerDto> getOwnerById(@PathVariable Long id,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = ownerService.getOwnerRevision(id).map(OwnerController::etagOf);
+            Optional<String> match = etag.flatMap(tag -> EntityTags.findMatch(ifNoneMatch, tag));
+            if (match.isPresent()) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(match.get()).varyBy(HttpHeaders.ACCEPT).build();
+            }
+        }
+        // Read path: projected straight into DTOs, see OwnerRepository/PetRepository
+        OwnerDto owner = ownerService.getOwnerDtoById(id);
+        return ResponseEntity.ok().eTag(etagOf(OwnerService.Revision.of(owner))).body(owner);
+    }
+
+    private static String etagOf(OwnerService.Revision revision) {
+        return EntityTags.of(revision.version(), revision.petsFingerprint());
     }
 
     @PostMapping
@@ -49,19 +127,56 @@ public class OwnerController
                                 );   
     }
 
+    /**
+     * Changes some fields of an owner in one UPDATE statement. Same rules as PATCH /api/pets/{id}.
+     */
+    @PatchMapping(value = "/{id}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<Void> patchOwner(@PathVariable long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           @RequestBody Map<String, Object> changes) {
+        try {
+            Optional<Long> version = ownerService.patchOwner(id, EntityTags.parseIfMatch(ifMatch), changes);
+            ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent();
+            version.ifPresent(v -> response.eTag(EntityTags.of(v)));
+            return response.build();
+        } catch (EntityNotFoundException e) {
+            if (EntityTags.isAny(ifMatch)) {
+                throw new PreconditionFailedException("If-Match: * but " + e.getMessage());
+            }
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteOwner(@PathVariable Long id) {
         ownerService.deleteOwner(id);
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Deletes the given owners and all their pets (unknown ids are ignored), without loading them:
+     * see OwnerService.deleteOwners.
+     *
+     * Example:
+     *   DELETE /owners?ids=3,4
+     */
+    @DeleteMapping(params = "ids")
+    public BulkDeleteResult deleteOwners(@RequestParam List<Long> ids) {
+        return ownerService.deleteOwners(ids);
+    }
+
+    /**
+     * Same as {@code DELETE /owners?ids=}, for id lists too long for a URL (JSON array body).
+     */
+    @PostMapping("/bulk-delete")
+    public BulkDeleteResult deleteOwnersInBulk(@RequestBody List<Long> ids) {
+        return ownerService.deleteOwners(ids);
+    }
+
     @GetMapping("/{ownerId}/pets")
-    public ResponseEntity<List<Pet>> getPetsForOwner(@PathVariable Long ownerId) {
-        return ResponseEntity.ok(ownerService.getPetsForOwner(ownerId)
-                                          // for the time being we'll be returning the entity directly
-                                          //#   .stream()
-                                          //#   .map(Pet::mapToDto)   
-                                          //#   .toList()
-                                 );
+    public ResponseEntity<List<PetDto>> getPetsForOwner(@PathVariable Long ownerId) {
+        return ResponseEntity.ok(ownerService.getPetsForOwner(ownerId));
     }
 }
@@ -1,36 +1,151 @@
 package com.fhi.pet_clinic.controller;
 
+import com.fhi.pet_clinic.dto.BulkDeleteResult;
+import com.fhi.pet_clinic.dto.InbreedingMatrix;
+import com.fhi.pet_clinic.dto.KeysetPage;
+import com.fhi.pet_clinic.dto.MatingPair;
+import com.fhi.pet_clinic.dto.MatingResult;
+import com.fhi.pet_clinic.dto.MultiGetResult;
+import com.fhi.pet_clinic.dto.PedigreeEntry;
+import com.fhi.pet_clinic.dto.PetDto;
 import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.service.ExportService;
+import com.fhi.pet_clinic.service.InbreedingMatrixService;
+import com.fhi.pet_clinic.service.PetAncestryService;
 import com.fhi.pet_clinic.service.PetService;
+import com.fhi.pet_clinic.service.exception.PreconditionFailedException;
+
+import jakarta.persistence.EntityNotFoundException;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/pets")
 public class PetController 
 {
-   private final PetService petService;
+   private final PetService              petService;
+   private final PetAncestryService      petAncestryService;
+   private final InbreedingMatrixService inbreedingMatrixService;
+   private final ExportService           exportService;
 
    // Constructor autowiring
-   public PetController(PetService petService) 
-   {  this.petService = petService;
+   public PetController(PetService              petService, 
+                        PetAncestryService      petAncestryService,
+                        InbreedingMatrixService inbreedingMatrixService,
+                        ExportService           exportService) 
+   {  this.petService              = petService;
+      this.petAncestryService      = petAncestryService;
+      this.inbreedingMatrixService = inbreedingMatrixService;
+      this.exportService           = exportService;
    }
 
 
+    /**
+     * Lists pets by ascending id, one page at a time, optionally filtered by species and/or owner.
+     * Pass the returned nextAfterId as afterId to get the next page (keyset pagination).
+     * 
+     * Example: GET /api/pets?limit=100
+     *          GET /api/pets?species=Dog&ownerId=3&afterId=1250&limit=100
+     */
     @GetMapping
-    public List<Pet> getAllPets() {
-        return petService.findAllPets();
+    public KeysetPage<PetDto> getPets(@RequestParam(required = false) Long afterId,
+                                      @RequestParam(required = false) Integer limit,
+                                      @RequestParam(required = false) String species,
+                                      @RequestParam(required = false) Long ownerId) {
+        return petService.findPets(afterId, limit, species, ownerId);
+    }
+
+    /**
+     * Returns the given pets in one query, in the order asked for, with the ids that matched no pet.
+     * Instead of one GET /api/pets/{id} per pet.
+     *
+     * Example: GET /api/pets?ids=42,7,1234
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResult<PetDto>> getPetsByIds(@RequestParam List<Long> ids) {
+        try {
+            return ResponseEntity.ok(petService.findPetDtosByIds(ids));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Returns the candidate mates of a pet (fertile, non-sterile, same species, opposite sex), paginated.
+     * 
+     * Example: GET /api/pets/eligible-mates?petId=1&page=0&size=20&sort=birthDate,desc
+     */
+    @GetMapping("/eligible-mates")
+    public ResponseEntity<Page<PetDto>> getEligibleMates(@RequestParam Long petId,
+                                                         @PageableDefault(size = 20, sort = "id") Pageable pageable) {
+        return petService.findEligibleMates(petId, pageable)
+                         .map(ResponseEntity::ok)
+                         .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Exports all pets as newline-delimited JSON, streamed as they are read (see ExportService).
+     * 
+     * Example: GET /api/pets/export
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPets() {
+        StreamingResponseBody body = exportService::exportPets;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
+    /**
+     * Returns a pet entity loaded with an explicit fetch plan: "summary" (with species), "withOwner",
+     * or "withPedigree" (with ancestors up to depth generations, at most 3). Associations outside
+     * the plan are returned as {"id": ...}.
+     * 
+     * Example: GET /api/pets/5?fetch=withPedigree&depth=2
+     */
+    @GetMapping(value = "/{id}", params = "fetch")
+    public ResponseEntity<Pet> getPetById(@PathVariable Long id,
+                                          @RequestParam String fetch,
+                                          @RequestParam(defaultValue = "1") int depth) {
+        try {
+            return petService.findPetById(id, fetch, depth)
+                             .map(ResponseEntity::ok)
+                             .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Returns a pet, with its version as ETag.
+     *
+     * <p>Conditional GET: a client sending that ETag back in {@code If-None-Match} gets a 304 as long as
+     * the pet is unchanged, checked against the version of the cached entity (see
+     * PetService.findPetVersion): neither the DTO query nor serialization.</p>
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<Pet> getPetById(@PathVariable Long id) {
-        Optional<Pet> pet = petService.findPetById(id);
-        return pet.map(ResponseEntity::ok)
+    public ResponseEntity<PetDto> getPetById(@PathVariable Long id,
+                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (ifNoneMatch != null) {
+            Optional<String> etag = petService.findPetVersion(id).map(EntityTags::of);
+            Optional<String> match = etag.flatMap(tag -> EntityTags.findMatch(ifNoneMatch, tag));
+            if (match.isPresent()) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(match.get()).varyBy(HttpHeaders.ACCEPT).build();
+            }
+        }
+        Optional<PetDto> pet = petService.findPetDtoById(id);
+        return pet.map(dto -> ResponseEntity.ok().eTag(EntityTags.of(dto.getVersion())).body(dto))
                   .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
@@ -50,6 +165,36 @@ public class PetController
         }
     }
 
+    /**
+     * Changes some fields of a pet (JSON Merge Patch, see PetService.patchPet), in one UPDATE statement.
+     *
+     * <p>Optimistic concurrency: send the version read (the pet's {@code version}) as
+     * {@code If-Match: "3"} (412 if stale, or weak) or as {@code "version": 3} in the body (409 if stale).
+     * {@code If-Match: *} applies the changes to whatever version, but answers 412 if there's no such pet.
+     * The new version is returned as ETag when it is known.</p>
+     *
+     * Example:
+     *   PATCH /api/pets/42   If-Match: "3"   { "name": "Rex", "coatColor": null }
+     */
+    @PatchMapping(value = "/{id}", consumes = { "application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<Void> patchPet(@PathVariable long id,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                         @RequestBody Map<String, Object> changes) {
+        try {
+            Optional<Long> version = petService.patchPet(id, EntityTags.parseIfMatch(ifMatch), changes);
+            ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent();
+            version.ifPresent(v -> response.eTag(EntityTags.of(v)));
+            return response.build();
+        } catch (EntityNotFoundException e) {
+            if (EntityTags.isAny(ifMatch)) {
+                throw new PreconditionFailedException("If-Match: * but " + e.getMessage());
+            }
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException | DataIntegrityViolationException e) {   // e.g. unknown owner
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePet(@PathVariable Long id) {
         try {
@@ -60,18 +205,122 @@ public class PetController
         }
     }
 
+    /**
+     * Deletes the given pets (unknown ids are ignored), without loading them: see PetService.deletePets.
+     *
+     * Example:
+     *   DELETE /api/pets?ids=12,13,14
+     */
+    @DeleteMapping(params = "ids")
+    public BulkDeleteResult deletePets(@RequestParam List<Long> ids) {
+        return petService.deletePets(ids);
+    }
+
+    /**
+     * Same as {@code DELETE /api/pets?ids=}, for id lists too long for a URL (JSON array body).
+     */
+    @PostMapping("/bulk-delete")
+    public BulkDeleteResult deletePetsInBulk(@RequestBody List<Long> ids) {
+        return petService.deletePets(ids);
+    }
+
 
 
    /**
     * Mates two pets together and returns the resulting offspring.
+    * An optional seed makes the litter reproducible (e.g. to replay it for incident analysis).
+    * With persist=true, the litter is saved (and returned with its ids).
     * 
     * Example: POST /api/pets/mate?motherId=1&fatherId=2
+    *          POST /api/pets/mate?motherId=1&fatherId=2&seed=42
+    *          POST /api/pets/mate?motherId=1&fatherId=2&persist=true
     */
    @PostMapping("/mate")
    public ResponseEntity<List<Pet>> matePets(@RequestParam Long motherId,
-                                             @RequestParam Long fatherId) 
+                                             @RequestParam Long fatherId,
+                                             @RequestParam(required = false) Long seed,
+                                             @RequestParam(defaultValue = "false") boolean persist) 
    {
-      List<Pet> offspring = petService.mate(motherId, fatherId);
+      if (persist) {
+         return ResponseEntity.status(HttpStatus.CREATED).body(petService.mateAndSave(motherId, fatherId, seed));
+      }
+      List<Pet> offspring = petService.mate(motherId, fatherId, seed);
       return ResponseEntity.ok(offspring);
    }
+
+
+   /**
+    * Mates a batch of pairs and returns one result per pair, in request order:
+    * either the offspring, or the error code explaining why the pair could not mate.
+    * With persist=true, all litters are saved together.
+    * 400 beyond {@code pedigree.mating.max-batch-size} pairs.
+    * 
+    * Example: POST /api/pets/mate/batch
+    *          [ { "motherId": 1, "fatherId": 2 }, { "motherId": 3, "fatherId": 4, "seed": 42 } ]
+    */
+   @PostMapping("/mate/batch")
+   public ResponseEntity<List<MatingResult>> matePetsInBatch(@RequestBody List<MatingPair> pairs,
+                                                             @RequestParam(defaultValue = "false") boolean persist) 
+   {
+      try {
+         return ResponseEntity.ok(persist ? petService.mateAndSave(pairs) : petService.mate(pairs));
+      } catch (IllegalArgumentException e) {   // too many pairs
+         return ResponseEntity.badRequest().build();
+      }
+   }
+
+
+   /**
+    * Returns the inbreeding risk matrix (females by males) of a set of candidates: either all fertile, 
+    * non-sterile pets of a species, or an explicit list of pets. 400 if there are too many of them.
+    * 
+    * Example: GET /api/pets/inbreeding-matrix?species=Dog
+    *          GET /api/pets/inbreeding-matrix?ids=1,2,5,8
+    */
+   @GetMapping("/inbreeding-matrix")
+   public ResponseEntity<InbreedingMatrix> getInbreedingMatrix(@RequestParam(required = false) String species,
+                                                               @RequestParam(required = false) List<Long> ids) 
+   {
+      if ((species == null) == (ids == null)) {
+         return ResponseEntity.badRequest().build();  // exactly one of the two
+      }
+      try {
+         return ResponseEntity.ok(species != null ? inbreedingMatrixService.computeForSpecies(species)
+                                                  : inbreedingMatrixService.computeForPets(ids));
+      } catch (IllegalArgumentException e) {
+         return ResponseEntity.badRequest().build();
+      }
+   }
+
+
+
+   /**
+    * Returns the ancestors of a pet, closest first, the pet itself included at depth 0.
+    * At most 16 generations are returned (PetAncestryService.MAX_PEDIGREE_DEPTH), whatever is asked.
+    * 
+    * Example: GET /api/pets/5/ancestors?generations=4
+    */
+   @GetMapping("/{id}/ancestors")
+   public ResponseEntity<List<PedigreeEntry>> getAncestors(@PathVariable Long id,
+                                                           @RequestParam(defaultValue = "3") int generations) 
+   {
+      return petAncestryService.findAncestors(id, generations)
+                               .map(ResponseEntity::ok)
+                               .orElseGet(() -> ResponseEntity.notFound().build());
+   }
+
+
+   /**
+    * Returns the descendants of a pet, closest first, the pet itself included at depth 0.
+    * 
+    * Example: GET /api/pets/5/descendants?generations=2
+    */
+   @GetMapping("/{id}/descendants")
+   public ResponseEntity<List<PedigreeEntry>> getDescendants(@PathVariable Long id,
+                                                             @RequestParam(defaultValue = "3") int generations) 
+   {
+      return petAncestryService.findDescendants(id, generations)
+                               .map(ResponseEntity::ok)
+                               .orElseGet(() -> ResponseEntity.notFound().build());
+   }
 }
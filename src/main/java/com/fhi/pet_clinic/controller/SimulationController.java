@@ -0,0 +1,74 @@
+package com.fhi.pet_clinic.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fhi.pet_clinic.service.PopulationSimulator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/simulations")
+public class SimulationController
+{
+   private final PopulationSimulator populationSimulator;
+
+   /**
+    * One line per generation: no pretty printing.
+    */
+   private final ObjectWriter lineWriter;
+
+   // Constructor autowiring
+   public SimulationController(PopulationSimulator populationSimulator, ObjectMapper objectMapper)
+   {  this.populationSimulator = populationSimulator;
+      this.lineWriter          = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+   }
+
+
+   /**
+    * Simulates N generations of breeding of a species' current population, in memory (nothing is persisted).
+    *
+    * <p>Statistics are streamed as newline-delimited JSON, one line per generation, as soon as each
+    * generation is done. The seed is returned in the {@code X-Simulation-Seed} header: passing it again
+    * replays the exact same simulation (as long as the population hasn't changed).</p>
+    *
+    * Example:
+    *   POST /api/simulations?species=Dog&generations=50&seed=42
+    */
+   @PostMapping
+   public ResponseEntity<StreamingResponseBody> simulate(@RequestParam String species,
+                                                         @RequestParam(defaultValue = "10") int generations,
+                                                         @RequestParam(required = false) Long seed)
+   {
+      PopulationSimulator.Simulation simulation;
+      try
+      {  // Loaded before streaming starts, so that errors still get a proper status
+         simulation = populationSimulator.prepare(species, generations, seed);
+      }
+      catch (IllegalArgumentException e)
+      {  return ResponseEntity.badRequest().build();
+      }
+
+      StreamingResponseBody body = out -> simulation.run(stats ->
+      {  try
+         {  out.write(lineWriter.writeValueAsBytes(stats));
+            out.write('\n');
+            out.flush();
+         }
+         catch (IOException e)
+         {  throw new UncheckedIOException(e);   // client went away: stops the simulation
+         }
+      });
+
+      return ResponseEntity.ok()
+                           .contentType(MediaType.APPLICATION_NDJSON)
+                           .header("X-Simulation-Seed", Long.toString(simulation.getSeed()))
+                           .body(body);
+   }
+}
@@ -1,44 +1,62 @@
 package com.fhi.pet_clinic.controller;
 
 import com.fhi.pet_clinic.model.Species;
-import com.fhi.pet_clinic.repo.SpeciesRepository;
+import com.fhi.pet_clinic.service.SpeciesRegistry;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/species")
 @RequiredArgsConstructor // Automatically creates constructor for final fields
 public class SpeciesController {
 
-    private final SpeciesRepository speciesRepository;
+    // Served from memory, see SpeciesRegistry
+    private final SpeciesRegistry speciesRegistry;
 
     @PostMapping
     public ResponseEntity<Species> createSpecies(@Valid @RequestBody Species species) {
         // Idempotency check for Moxter: 
         // If "Dog" already exists, just return it so the test can proceed.
-        return speciesRepository .findByName(species.getName())
-                                 .map(ResponseEntity::ok)
-                                 .orElseGet(() -> {
-                                    Species saved = speciesRepository.save(species);
-                                    return ResponseEntity.status(HttpStatus.CREATED).body(saved);
-                                 });
+        try {
+            SpeciesRegistry.Registration registration = speciesRegistry.create(species);
+            return ResponseEntity.status(registration.created() ? HttpStatus.CREATED : HttpStatus.OK)
+                                 .body(registration.species());
+        } catch (DataIntegrityViolationException e) {   // conflicting insert, see SpeciesRegistry.create
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
-    @GetMapping
-    public List<Species> getAll() {
-        return speciesRepository.findAll();
+    /**
+     * All species. Conditional GET: the ETag is a hash of the catalogue's JSON (see SpeciesRegistry), and a
+     * client sending it back in {@code If-None-Match} gets a 304 while the catalogue is the same.
+     * JSON only, as serialized by the registry: an Accept without it (Smile, CBOR) gets a 406, and
+     * {@code ?pretty} is ignored.
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Serialized once per change of the catalogue, not per request
+        SpeciesRegistry.JsonCatalogue catalogue = speciesRegistry.findAllAsJson();
+        String etag = EntityTags.of(catalogue.hash());
+        if (EntityTags.findMatch(ifNoneMatch, etag).isPresent()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                             .eTag(etag)
+                             .contentType(MediaType.APPLICATION_JSON)
+                             .body(catalogue.json());
     }
 
     @GetMapping("/name/{name}")
     public ResponseEntity<Species> getByName(@PathVariable String name) {
-        return speciesRepository.findByName(name)
+        return speciesRegistry.findByName(name)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+}
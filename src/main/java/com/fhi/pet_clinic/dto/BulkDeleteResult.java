@@ -0,0 +1,18 @@
+package com.fhi.pet_clinic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk delete: ids that matched nothing (already deleted, never existed) are
+ * the difference between the two counts.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResult {
+
+    private int requested;           // distinct ids
+    private int deleted;
+}
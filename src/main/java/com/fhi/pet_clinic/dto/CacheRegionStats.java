@@ -0,0 +1,22 @@
+package com.fhi.pet_clinic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Hit / miss counters of one second-level cache region, since startup.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheRegionStats {
+
+    private String region;           // as named in ehcache.xml, e.g. "pet"
+
+    private long hits;
+    private long misses;             // looked up, not found (then loaded from the database)
+    private long puts;               // added or replaced
+
+    private double hitRatio;         // hits / (hits + misses), 0 when never looked up
+}
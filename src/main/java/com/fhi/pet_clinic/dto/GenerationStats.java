@@ -0,0 +1,29 @@
+package com.fhi.pet_clinic.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Statistics of one simulated generation, as streamed by the population simulator.
+ */
+@Data
+@NoArgsConstructor
+public class GenerationStats {
+
+    private int generation;          // 1 = first breeding season after the snapshot
+
+    private int population;          // alive at the end of the generation
+    private int fertileFemales;      // fertile, non-sterile, at the start of the generation
+    private int fertileMales;
+
+    private int matings;
+    private int births;
+    private int deaths;              // reached the species' expected lifespan
+
+    private double meanInbreedingRisk;     // over this generation's matings (0 to 100)
+    private double meanDegeneracy;         // over this generation's births (0 to 100)
+    private double sterileBirthRatio;      // over this generation's births (0 to 1)
+
+    private boolean capacityReached;       // births were dropped for lack of room, see simulation.max-*
+    private long elapsedMillis;
+}
@@ -0,0 +1,34 @@
+package com.fhi.pet_clinic.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk import: what was imported, and what was not, and why.
+ */
+@Data
+@NoArgsConstructor
+public class ImportReport {
+
+    private int owners;              // committed
+    private int pets;                // committed
+    private int errorCount;          // all errors, even beyond the reported ones
+    private List<RecordError> errors = new ArrayList<>();   // the first ones, see data-import.max-reported-errors
+    private boolean complete;        // false if the input could not be read to the end
+    private long elapsedMillis;
+
+    /**
+     * A record (or chunk of records) that was not imported.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RecordError {
+        private String record;       // e.g. "owner #12 / pet #3"
+        private String message;
+    }
+}
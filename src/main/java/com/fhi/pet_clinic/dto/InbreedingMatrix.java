@@ -0,0 +1,23 @@
+package com.fhi.pet_clinic.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Inbreeding risks of every possible mating within a set of candidate pets: females by males.
+ *
+ * <p>{@code risks[i][j]} is the inbreeding risk (0 to 100) of mating female {@code femaleIds[i]} with
+ * male {@code maleIds[j]}. Pairs of the same sex can't be mated, hence aren't in the matrix.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InbreedingMatrix {
+
+    private List<Long> femaleIds;
+    private List<Long> maleIds;
+    private int[][] risks;
+}
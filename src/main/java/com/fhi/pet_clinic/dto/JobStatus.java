@@ -0,0 +1,33 @@
+package com.fhi.pet_clinic.dto;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State and progress of a background job (see JobService), as returned by {@code GET /api/jobs/{id}}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatus {
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private String id;
+    private String type;             // e.g. "owner-import"
+    private State state;
+
+    private Instant submittedAt;
+    private Instant startedAt;       // null while queued
+    private Instant finishedAt;      // null until succeeded or failed
+
+    private long processed;          // progress, in units
+    private Long total;              // null if not known beforehand
+    private String unit;             // e.g. "bytes", "pets", "generations"
+
+    private String error;            // when failed
+    private String resultUrl;        // when succeeded
+}
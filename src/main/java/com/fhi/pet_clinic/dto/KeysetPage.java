@@ -0,0 +1,28 @@
+package com.fhi.pet_clinic.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a keyset (seek) paginated listing, ordered by id.
+ *
+ * <p>To get the next page, pass {@code nextAfterId} back as {@code afterId}: the query then seeks
+ * straight to it through the primary key index, so that page N costs the same as page 1
+ * (unlike OFFSET, which reads and discards all the rows before the page).</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeysetPage<T> {
+
+    private List<T> items;
+
+    private Long nextAfterId;    // null on the last page
+
+    public static <T> KeysetPage<T> empty() {
+        return new KeysetPage<>(List.of(), null);
+    }
+}
@@ -0,0 +1,23 @@
+package com.fhi.pet_clinic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One mother/father pair of a batch mating request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MatingPair {
+
+    private Long motherId;
+    private Long fatherId;
+
+    private Long seed;           // optional: replays a litter exactly, see PetService.mate(Long, Long, Long)
+
+    public MatingPair(Long motherId, Long fatherId) {
+        this(motherId, fatherId, null);
+    }
+}
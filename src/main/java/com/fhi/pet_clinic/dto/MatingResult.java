@@ -0,0 +1,44 @@
+package com.fhi.pet_clinic.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.service.exception.pet.MatingException;
+
+import lombok.Data;
+
+/**
+ * Outcome of one pair of a batch mating: either the offspring, or the reason
+ * (a {@link MatingException.Cause} code) why the pair could not mate.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MatingResult {
+
+    private Long motherId;
+    private Long fatherId;
+
+    private List<Pet> offspring;  // set on success
+
+    private String errorCode;     // set on failure, see MatingException.Cause
+    private String errorMessage;
+
+
+    public static MatingResult success(MatingPair pair, List<Pet> offspring) {
+        MatingResult result = new MatingResult();
+        result.setMotherId(pair.getMotherId());
+        result.setFatherId(pair.getFatherId());
+        result.setOffspring(offspring);
+        return result;
+    }
+
+    public static MatingResult failure(MatingPair pair, MatingException ex) {
+        MatingResult result = new MatingResult();
+        result.setMotherId(pair.getMotherId());
+        result.setFatherId(pair.getFatherId());
+        result.setErrorCode(ex.getCauseEnum().getCode());
+        result.setErrorMessage(ex.getMessage());
+        return result;
+    }
+}
@@ -0,0 +1,43 @@
+package com.fhi.pet_clinic.dto;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entities fetched by a list of ids (e.g. {@code GET /api/pets?ids=3,1,2}): found ones in the
+ * order they were asked for, and the ids that matched nothing.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResult<T> {
+
+    private List<T> items;           // in request order, each id once
+
+    private List<Long> missing;      // in request order
+
+    /**
+     * Orders what a query found (in whatever order) as the ids were asked for.
+     */
+    public static <T> MultiGetResult<T> inRequestOrder(Collection<Long> ids, Collection<T> found, Function<T, Long> idOf) {
+        Map<Long, T> byId = new HashMap<>(found.size() * 2);
+        found.forEach(item -> byId.put(idOf.apply(item), item));
+
+        List<T>    items   = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            T item = byId.get(id);
+            if (item != null) items.add(item);
+            else              missing.add(id);
+        }
+        return new MultiGetResult<>(items, missing);
+    }
+}
@@ -1,16 +1,27 @@
 package com.fhi.pet_clinic.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
 import java.util.List;
 
 @Data
+@NoArgsConstructor
 public class OwnerDto {
 
     private Long id;
     private String name;
+    private Long version;        // for If-Match, see OwnerController.patchOwner
     private String address;
     private String phone;
 
     // Optional: include pet IDs or even full PetDtos if you want nested output
     private List<PetDto> pets;
-}
\ No newline at end of file
+
+    // Constructor expression target, see OwnerRepository
+    public OwnerDto(Long id, String name, Long version) {
+        this.id      = id;
+        this.name    = name;
+        this.version = version;
+    }
+}
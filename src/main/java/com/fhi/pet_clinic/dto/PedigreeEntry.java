@@ -0,0 +1,20 @@
+package com.fhi.pet_clinic.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One relative (ancestor or descendant) of a pet, as returned by the pedigree endpoints.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PedigreeEntry {
+
+    private Long id;
+    private String name;
+    private String sex;
+
+    private int depth;           // generations away from the queried pet (0 = the pet itself)
+}
@@ -1,26 +1,46 @@
 package com.fhi.pet_clinic.dto;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
 
+import com.fhi.pet_clinic.model.Sex;
+
+/**
+ * Read model of a pet: its own columns, associations as ids (or name, for the species).
+ *
+ * <p>Besides {@code Pet.mapToDto()}, built directly by the JPQL constructor expressions of
+ * {@code PetRepository} ({@code SELECT new ...PetDto(...)}), which read just these columns in one
+ * query, without hydrating the pet, its owner, species or parents.</p>
+ */
 @Data
+@NoArgsConstructor
 public class PetDto {
 
     private Long id;
     private String name;
-    private String type;         // e.g. "Dog", "Cat", etc.
+    private String sex;
+    private String speciesName;  // e.g. "Dog", "Cat", etc.
     private LocalDate birthDate;
 
     private Long ownerId;        // optional: useful for linking
+    private Long motherId;
+    private Long fatherId;
 
-    public void setSex(Object object) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'setSex'");
-    }
+    private Long version;        // for If-Match, see PetController.patchPet
 
-    public void setSpeciesName(String name2) {
-      // TODO Auto-generated method stub
-      throw new UnsupportedOperationException("Unimplemented method 'setSpeciesName'");
+    // Constructor expression target: keep in sync with PetRepository.PET_DTO
+    public PetDto(Long id, String name, Sex sex, String speciesName, LocalDate birthDate,
+                  Long ownerId, Long motherId, Long fatherId, Long version) {
+        this.id          = id;
+        this.name        = name;
+        this.sex         = sex != null ? sex.toString() : null;
+        this.speciesName = speciesName;
+        this.birthDate   = birthDate;
+        this.ownerId     = ownerId;
+        this.motherId    = motherId;
+        this.fatherId    = fatherId;
+        this.version     = version;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package com.fhi.pet_clinic.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a simulation run as a background job: what {@code POST /api/simulations} streams, in one document.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationReport {
+
+    private long seed;                           // replays the same simulation
+    private List<GenerationStats> generations;   // in order
+}
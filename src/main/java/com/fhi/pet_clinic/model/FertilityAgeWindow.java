@@ -1,5 +1,7 @@
 package com.fhi.pet_clinic.model;
 
+import java.time.LocalDate;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import jakarta.validation.constraints.Max;
@@ -34,6 +36,26 @@ public class FertilityAgeWindow
    @Column(name = "fertility_to") // from and to are reserved SQL keywords,
    private int to;
 
+
+   // The window as a birth date range, so that fertility can be checked by the database
+   // (e.g. PetRepository.findEligibleMates). Consistent with Pet.getAgeInYears():
+   // an individual born exactly N years before a day is N years old that day.
+
+   /**
+    * Individuals fertile on {@code day} were born strictly after this date
+    * (born on it, they turn {@code to + 1} that day).
+    */
+   public LocalDate fertileIfBornAfter(LocalDate day)
+   {   return day.minusYears(to + 1L);
+   }
+
+   /**
+    * Individuals fertile on {@code day} were born on or before this date.
+    */
+   public LocalDate fertileIfBornOnOrBefore(LocalDate day)
+   {   return day.minusYears(from);
+   }
+
    @Override
    public String toString() 
    {   return "[" + from + "-" + to + "]";
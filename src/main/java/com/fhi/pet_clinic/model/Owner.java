@@ -3,6 +3,9 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
@@ -11,6 +14,11 @@ import com.fhi.pet_clinic.dto.OwnerDto;
 import java.util.List;
 
 @Entity
+// Second-level cache, region declared in ehcache.xml. Read-write: owners are updated in place.
+// The pets collection is not cached: it's the inverse side, and Hibernate doesn't refresh its
+// cached copy when a pet changes owner.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "owner")
 @Setter
 @Getter
 
@@ -21,15 +29,24 @@ import java.util.List;
 public class Owner
 {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence rather than IDENTITY, so that owners can be inserted in JDBC batches. See Pet.
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "owner_seq")
+    @SequenceGenerator(name = "owner_seq", sequenceName = "owner_seq", allocationSize = 50)
     private Long id;
 
+    // Optimistic lock, see Pet
+    @Version
+    private Long version;
+
     private String name;
 
     @ManyToOne
     private PetClinic petClinic;
 
-    @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL)  // inverse side
+    // inverse side
+    // No cascaded REMOVE: removing an owner through the EntityManager would load every pet to delete it
+    // on its own. Owners are deleted with one statement, the database deleting their pets (see Pet.owner).
+    @OneToMany(mappedBy = "owner", cascade = { CascadeType.PERSIST, CascadeType.MERGE })
     // See comments in Pet.
     //# @JsonManagedReference   // "Official" Jackson way to handle parent-child relationships
     //#                         // for inverse side.
@@ -48,6 +65,7 @@ public class Owner
         OwnerDto dto = new OwnerDto();
         dto.setId  (this.getId());
         dto.setName(this.getName());
+        dto.setVersion(this.getVersion());
         return dto;
     }
 }
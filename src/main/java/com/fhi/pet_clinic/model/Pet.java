@@ -7,16 +7,31 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import com.fhi.pet_clinic.dto.PetDto;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
 import jakarta.annotation.Nullable;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.NamedEntityGraphs;
+import jakarta.persistence.NamedSubgraph;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -28,20 +43,72 @@ import net.minidev.json.annotate.JsonIgnore;
 
 
 @Entity
+// Parent links are walked downwards by the descendant queries (see PetRepository):
+// not all databases index foreign key columns on their own.
+// Eligible mates are searched by species and sex (equality), then birth date (range), see PetRepository.
+// Filtered listings seek on (filter, id), see PetRepository's keyset pagination.
+@Table(indexes = { @Index(name = "idx_pet_mother", columnList = "mother_id"),
+                   @Index(name = "idx_pet_father", columnList = "father_id"),
+                   @Index(name = "idx_pet_species_sex_birth", columnList = "species_id, sex, birth_date"),
+                   @Index(name = "idx_pet_species_id", columnList = "species_id, id"),
+                   @Index(name = "idx_pet_owner_id", columnList = "owner_id, id") })
+
+// Fetch plans.
+// All associations are LAZY: with the JPA default (EAGER for @ManyToOne), loading one pet loaded its
+// parents, which loaded theirs, and so on up the whole pedigree. Each use case now states what it needs,
+// through one of these graphs on its repository method (see PetRepository), fetched with joins in the
+// same query. What is not in the graph stays an uninitialized proxy, serialized as {"id": ...}
+// (see JacksonConfig).
+// - summary:      the pet and its species (enough to mate it: fertility window, litter size...)
+// - withOwner:    summary + owner
+// - withPedigree: summary + parents (and their species). Deeper pedigrees: PetRepository.findWithPedigreeById
+@NamedEntityGraphs({
+   @NamedEntityGraph(name = Pet.GRAPH_SUMMARY,
+                     attributeNodes = @NamedAttributeNode("species")),
+   @NamedEntityGraph(name = Pet.GRAPH_WITH_OWNER,
+                     attributeNodes = { @NamedAttributeNode("species"), @NamedAttributeNode("owner") }),
+   @NamedEntityGraph(name = Pet.GRAPH_WITH_PEDIGREE,
+                     attributeNodes = { @NamedAttributeNode("species"),
+                                        @NamedAttributeNode(value = "mother", subgraph = "parent"),
+                                        @NamedAttributeNode(value = "father", subgraph = "parent") },
+                     subgraphs = @NamedSubgraph(name = "parent", attributeNodes = @NamedAttributeNode("species")))
+})
+// Second-level cache, region declared in ehcache.xml. Read-write: pets are updated (owner, sterility...).
+// Parents, mates and pedigrees are found by id over and over, and find-by-id checks this cache first.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pet")
 @Setter
 @Getter
 public class Pet 
 {
+    public static final String GRAPH_SUMMARY       = "Pet.summary";
+    public static final String GRAPH_WITH_OWNER    = "Pet.withOwner";
+    public static final String GRAPH_WITH_PEDIGREE = "Pet.withPedigree";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Not IDENTITY: with IDENTITY, Hibernate must run each INSERT immediately to learn the id,
+    // which silently disables JDBC batching. A sequence with the pooled optimizer hands out
+    // ids in blocks of 50 (one sequence call per block), so litters and imports are inserted
+    // in true JDBC batches (see hibernate.jdbc.batch_size).
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pet_seq")
+    @SequenceGenerator(name = "pet_seq", sequenceName = "pet_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Optimistic lock: incremented by every update, which only applies if the version it read is
+     * still current (see PetService.patchPet). Exposed as the ETag of a pet.
+     */
+    @Version
+    private Long version;
+
     @NotBlank                      // Prevent null or empty name.
     @Size(max = 50)
     private String name;
 
     @NotNull
-    @ManyToOne                       // Owning side.
+    @ManyToOne(fetch = FetchType.LAZY)  // Owning side.
+    // Deleting an owner deletes its pets, in the database (ON DELETE CASCADE): see OwnerService.deleteOwners.
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "owner_id")   // Indicates the corresponding FK in table 'pet'. Can
                                      // be omitted. If so, JPA auto-generates the FK column 
                                      // name using a naming convention.
@@ -85,19 +152,23 @@ public class Pet
     private Sex sex;
 
     @NotNull
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Species species;
 
     // --- Parentage (forward links) ---
 
     @Nullable // might not be known
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "mother_id")
+    // Deleting a pet makes its children's parent unknown, in the database (ON DELETE SET NULL),
+    // rather than failing on the foreign key or loading the children. See PetService.deletePets.
+    @OnDelete(action = OnDeleteAction.SET_NULL)
     private Pet mother;
 
     @Nullable // might not be known
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "father_id")
+    @OnDelete(action = OnDeleteAction.SET_NULL)
     private Pet father;
 
     // --- Genetic traits ---
@@ -199,6 +270,9 @@ public class Pet
         if (this.owner != null)
         {   dto.setOwnerId(this.owner.getId());
         }
+        dto.setMotherId(this.mother != null ? this.mother.getId() : null);
+        dto.setFatherId(this.father != null ? this.father.getId() : null);
+        dto.setVersion(this.getVersion());
         return dto;
     }
 
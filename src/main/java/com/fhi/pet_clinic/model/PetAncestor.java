@@ -0,0 +1,107 @@
+package com.fhi.pet_clinic.model;
+
+import java.io.Serializable;
+
+import org.springframework.data.domain.Persistable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * One row of the pedigree closure table: "{@code ancestorId} is an ancestor of {@code petId},
+ * {@code depth} generations up".
+ *
+ * <p>Parents are at depth 1, grandparents at depth 2, and so on. The same ancestor may appear
+ * at several depths when it is reachable through more than one line (which is precisely the
+ * inbreeding case we are interested in).</p>
+ *
+ * <p>Rows are maintained by {@link com.fhi.pet_clinic.service.PetAncestryService} when a pet
+ * with known parents is saved, so that reading a pet's full ancestry is a single indexed
+ * lookup instead of a recursive walk of {@link Pet#getMother()} / {@link Pet#getFather()}.</p>
+ *
+ * <p>Deliberately no JPA association to {@link Pet}: the table is only ever read and written
+ * by id, and we don't want loading a closure row to hydrate a pet (and its pedigree).</p>
+ *
+ * <p>Implements {@link Persistable} because its id is assigned, not generated: otherwise Spring Data's
+ * {@code save()} cannot tell a new row from an existing one and issues a SELECT (merge) before
+ * every INSERT, which also defeats JDBC batching.</p>
+ */
+@Entity
+@Table(name = "pet_ancestor",
+       indexes = { @Index(name = "idx_pet_ancestor_pet_depth", columnList = "pet_id, depth, ancestor_id"),
+                   // Descendant lookups and deletes by ancestor: the primary key starts with pet_id
+                   @Index(name = "idx_pet_ancestor_ancestor",  columnList = "ancestor_id") })
+@IdClass(PetAncestor.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+public class PetAncestor implements Persistable<PetAncestor.Key>
+{
+    @Id
+    @Column(name = "pet_id", nullable = false)
+    private Long petId;
+
+    @Id
+    @Column(name = "ancestor_id", nullable = false)
+    private Long ancestorId;
+
+    /**
+     * Number of generations between the pet and the ancestor (1 = parent).
+     */
+    @Id
+    @Column(nullable = false)
+    private int depth;
+
+    @Transient
+    private boolean isNew = true;
+
+
+    public PetAncestor(Long petId, Long ancestorId, int depth)
+    {   this.petId      = petId;
+        this.ancestorId = ancestorId;
+        this.depth      = depth;
+    }
+
+    @Override
+    public Key getId()
+    {   return new Key(petId, ancestorId, depth);
+    }
+
+    @Override
+    public boolean isNew()
+    {   return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew()
+    {   this.isNew = false;
+    }
+
+
+    /**
+     * Composite primary key of {@link PetAncestor}.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable
+    {
+        private Long petId;
+        private Long ancestorId;
+        private int  depth;
+    }
+}
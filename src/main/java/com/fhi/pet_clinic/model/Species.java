@@ -1,5 +1,7 @@
 package com.fhi.pet_clinic.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NaturalId;
 import org.hibernate.annotations.NaturalIdCache;
 
@@ -14,11 +16,17 @@ import lombok.Getter;
 
 @Entity
 
+// Second-level cache (regions declared in ehcache.xml).
+// Species are created, never updated: read-only, the cheapest strategy (no locking, no versioning).
+// Updating a species would now fail; change the strategy to READ_WRITE first if that's ever needed.
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = "species")
+
 // Enables second-level caching for lookups by natural ID (e.g. `name`),
 // allowing Hibernate to optimize repeated queries like `findByName("Dog")`.
 // Recommended when `@NaturalId` is frequently queried and seldom updated.
-// Requires second-level caching to be enabled globally in Hibernate settings.
-@NaturalIdCache
+// Only natural-id loads use it, not queries on the name: see SpeciesRepository.findByName.
+@NaturalIdCache(region = "species-by-name")
 @Getter
 @Setter
 public class Species 
@@ -1,8 +1,51 @@
 package com.fhi.pet_clinic.repo;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.fhi.pet_clinic.dto.OwnerDto;
 import com.fhi.pet_clinic.model.Owner;
 
+import jakarta.persistence.QueryHint;
+
 public interface OwnerRepository extends JpaRepository<Owner, Long> 
-{}
+{
+   /**
+    * Read path: just the OwnerDto columns, no entity hydrated. See {@link PetRepository#PET_DTO}.
+    */
+   @Query("SELECT new com.fhi.pet_clinic.dto.OwnerDto(o.id, o.name, o.version) FROM Owner o WHERE o.id = :id")
+   Optional<OwnerDto> findDtoById(@Param("id") Long id);
+
+   /**
+    * Multi-get, see {@link PetRepository#findDtosByIdIn}.
+    */
+   @Query("SELECT new com.fhi.pet_clinic.dto.OwnerDto(o.id, o.name, o.version) FROM Owner o WHERE o.id IN :ids")
+   List<OwnerDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+   /**
+    * All owners, by ascending id, for export. See {@link PetRepository#streamAllForExport()}.
+    */
+   @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + PetRepository.EXPORT_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY,  value = "true") })
+   @Query("SELECT o FROM Owner o ORDER BY o.id")
+   Stream<Owner> streamAllForExport();
+
+   /**
+    * Deletes owners in one statement; their pets are deleted by the database (ON DELETE CASCADE,
+    * see Pet.owner), without being loaded.
+    *
+    * @return number of owners deleted
+    */
+   @Modifying
+   @Query("DELETE FROM Owner o WHERE o.id IN :ids")
+   int deleteByIds(@Param("ids") Collection<Long> ids);
+}
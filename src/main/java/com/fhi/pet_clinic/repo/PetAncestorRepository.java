@@ -0,0 +1,129 @@
+package com.fhi.pet_clinic.repo;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+
+import com.fhi.pet_clinic.model.PetAncestor;
+
+/**
+ * Access to the pedigree closure table. See {@link PetAncestor}.
+ */
+public interface PetAncestorRepository extends JpaRepository<PetAncestor, PetAncestor.Key>
+{
+    /**
+     * Returns the {@code [petId, ancestorId]} pairs of all the given pets, up to (and including)
+     * the given depth, in a single query (served by the {@code (pet_id, depth, ancestor_id)} index).
+     *
+     * <p>Scalar rather than entity results: nothing to register in the persistence context.
+     * An ancestor reachable at several depths is returned once per depth.</p>
+     */
+    @Query("""
+           select a.petId, a.ancestorId from PetAncestor a
+            where a.petId in :petIds
+              and a.depth <= :maxDepth
+           """)
+    List<Object[]> findAncestorIdPairs(@Param("petIds")   Collection<Long> petIds,
+                                       @Param("maxDepth") int maxDepth);
+
+
+    /**
+     * Returns those of the given pets that have a parent but no closure rows: inserted without going
+     * through PetService.savePet (fixtures, SQL scripts), or before the closure table existed.
+     */
+    @Query("""
+           select p.id from Pet p
+            where p.id in :petIds
+              and (p.mother is not null or p.father is not null)
+              and not exists (select a.petId from PetAncestor a where a.petId = p.id and a.depth = 1)
+           """)
+    List<Long> findIdsWithoutAncestry(@Param("petIds") Collection<Long> petIds);
+
+
+    /**
+     * Copies the ancestors of the given pets' parents onto the pets, one generation further up.
+     *
+     * <p>The pets' own depth-1 (parent) rows must already be there. A single {@code INSERT ... SELECT}
+     * for any number of pets: the parents' closure rows are already there too, so the pets' closure
+     * is derived without visiting the pedigree.</p>
+     *
+     * <p>Declares the only table it touches: Hibernate can't tell which tables a native statement
+     * modifies, and would otherwise evict every second-level cache region (pets, owners, species...)
+     * each time a litter is born.</p>
+     *
+     * @param maxDepth ancestors deeper than this are not recorded
+     * @return number of inserted rows
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "pet_ancestor"))
+    @Query(value = """
+                   INSERT INTO pet_ancestor (pet_id, ancestor_id, depth)
+                   SELECT DISTINCT p.pet_id, a.ancestor_id, a.depth + 1
+                     FROM pet_ancestor p
+                     JOIN pet_ancestor a ON a.pet_id = p.ancestor_id
+                    WHERE p.pet_id IN (:petIds)
+                      AND p.depth = 1
+                      AND a.depth < :maxDepth
+                   """,
+           nativeQuery = true)
+    int inheritAncestors(@Param("petIds")   Collection<Long> petIds,
+                         @Param("maxDepth") int maxDepth);
+
+
+    /**
+     * Returns the pets that have one of the given pets in their closure rows, except those pets
+     * themselves (served by the {@code ancestor_id} index). When the given pets are deleted, these rows
+     * hold ancestors reached through them: see PetAncestryService.forgetAncestry.
+     */
+    @Query("""
+           select distinct a.petId from PetAncestor a
+            where a.ancestorId in :petIds
+              and a.petId not in :petIds
+           """)
+    List<Long> findDescendantIds(@Param("petIds") Collection<Long> petIds);
+
+    /**
+     * Same as {@link #findDescendantIds}, for all the pets of the given owners.
+     */
+    @Query("""
+           select distinct a.petId from PetAncestor a
+            where a.ancestorId in (select p.id from Pet p where p.owner.id in :ownerIds)
+              and a.petId not in (select p.id from Pet p where p.owner.id in :ownerIds)
+           """)
+    List<Long> findDescendantIdsOfOwners(@Param("ownerIds") Collection<Long> ownerIds);
+
+
+    /**
+     * Removes the closure rows of the given pets: their own ancestry, and their place in their
+     * descendants' (whose parent links to them are cleared by the database, see Pet.mother).
+     */
+    @Modifying
+    @Query("delete from PetAncestor a where a.petId in :petIds or a.ancestorId in :petIds")
+    int deleteByPetIds(@Param("petIds") Collection<Long> petIds);
+
+    /**
+     * Removes the ancestry of the given pets (their rows as descendants), to be recorded again.
+     */
+    @Modifying
+    @Query("delete from PetAncestor a where a.petId in :petIds")
+    int deleteAncestryOf(@Param("petIds") Collection<Long> petIds);
+
+    /**
+     * Same as {@link #deleteByPetIds}, for all the pets of the given owners.
+     */
+    @Modifying
+    @Query("""
+           delete from PetAncestor a
+            where a.petId      in (select p.id from Pet p where p.owner.id in :ownerIds)
+               or a.ancestorId in (select p.id from Pet p where p.owner.id in :ownerIds)
+           """)
+    int deleteByOwnerIds(@Param("ownerIds") Collection<Long> ownerIds);
+}
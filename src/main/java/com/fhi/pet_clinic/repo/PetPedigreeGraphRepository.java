@@ -0,0 +1,24 @@
+package com.fhi.pet_clinic.repo;
+
+import java.util.Optional;
+
+import com.fhi.pet_clinic.model.Pet;
+
+/**
+ * Fragment of {@link PetRepository}: fetch plans that named entity graphs can't express,
+ * because their shape depends on a parameter.
+ */
+public interface PetPedigreeGraphRepository 
+{
+   /**
+    * Deepest pedigree fetched in one query: the number of joins doubles with each generation
+    * (2 + 4 + 8 = 14 ancestors at depth 3, plus their species).
+    */
+   int MAX_PEDIGREE_GRAPH_DEPTH = 3;
+
+   /**
+    * Loads a pet with its species and its ancestors (and theirs) up to {@code depth} generations,
+    * in a single query. Depth is capped to {@link #MAX_PEDIGREE_GRAPH_DEPTH}.
+    */
+   Optional<Pet> findWithPedigreeById(Long id, int depth);
+}
@@ -0,0 +1,49 @@
+package com.fhi.pet_clinic.repo;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.hibernate.jpa.SpecHints;
+
+import com.fhi.pet_clinic.model.Pet;
+
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Subgraph;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Implementation of the {@link PetPedigreeGraphRepository} fragment, picked up by Spring Data
+ * by its name (fragment interface name + "Impl").
+ */
+@RequiredArgsConstructor
+public class PetPedigreeGraphRepositoryImpl implements PetPedigreeGraphRepository 
+{
+   private final EntityManager entityManager;
+
+
+   @Override
+   public Optional<Pet> findWithPedigreeById(Long id, int depth)
+   {
+      EntityGraph<Pet> graph = entityManager.createEntityGraph(Pet.class);
+      graph.addAttributeNodes("species");
+      addParents(graph::addSubgraph, Math.min(depth, MAX_PEDIGREE_GRAPH_DEPTH));
+
+      return Optional.ofNullable(entityManager.find(Pet.class, id, Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, graph)));
+   }
+
+
+   /**
+    * Adds the mother and father nodes (with their species), and theirs, down to {@code depth} generations.
+    */
+   private static void addParents(Function<String, Subgraph<Pet>> addSubgraph, int depth)
+   {
+      if (depth <= 0) return;
+      for (String parent : new String[] { "mother", "father" })
+      {  Subgraph<Pet> subgraph = addSubgraph.apply(parent);
+         subgraph.addAttributeNodes("species");
+         addParents(subgraph::addSubgraph, depth - 1);
+      }
+   }
+}
@@ -1,13 +1,300 @@
 package com.fhi.pet_clinic.repo;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
 
+import com.fhi.pet_clinic.dto.PetDto;
 import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.Sex;
 
-public interface PetRepository extends JpaRepository<Pet, Long> 
+public interface PetRepository extends JpaRepository<Pet, Long>, PetPedigreeGraphRepository
 {
 
-   Optional<Pet> findByOwnerId(Long ownerId);
+   // --- Write path: entities, with an explicit fetch plan (see Pet's named entity graphs) ---
+
+   @EntityGraph(Pet.GRAPH_SUMMARY)
+   Optional<Pet> findSummaryById(Long id);
+
+   @EntityGraph(Pet.GRAPH_SUMMARY)
+   List<Pet> findSummariesByIdIn(Collection<Long> ids);
+
+   @EntityGraph(Pet.GRAPH_WITH_OWNER)
+   Optional<Pet> findWithOwnerById(Long id);
+
+   @EntityGraph(Pet.GRAPH_WITH_PEDIGREE)
+   Optional<Pet> findWithPedigreeById(Long id);
+
+   /**
+    * Deletes pets in one statement, without loading them. Their children's parent links are cleared
+    * by the database (ON DELETE SET NULL, see Pet.mother / Pet.father).
+    *
+    * @return number of pets deleted
+    */
+   @Modifying
+   @Query("DELETE FROM Pet p WHERE p.id IN :ids")
+   int deleteByIds(@Param("ids") Collection<Long> ids);
+
+   // Before pets are deleted, their children's versions are incremented: the database is about to clear
+   // their parent links (ON DELETE SET NULL), a change that their version, hence their ETag, must reflect.
+
+   @Modifying
+   @Query("UPDATE Pet c SET c.version = c.version + 1 WHERE c.mother.id IN :parentIds OR c.father.id IN :parentIds")
+   int incrementVersionOfChildren(@Param("parentIds") Collection<Long> parentIds);
+
+   @Modifying
+   @Query("""
+          UPDATE Pet c SET c.version = c.version + 1
+           WHERE c.mother.id IN (SELECT p.id FROM Pet p WHERE p.owner.id IN :ownerIds)
+              OR c.father.id IN (SELECT p.id FROM Pet p WHERE p.owner.id IN :ownerIds)
+          """)
+   int incrementVersionOfChildrenOfOwners(@Param("ownerIds") Collection<Long> ownerIds);
+
+
+   /**
+    * Returns the parent links of the given pets, as {@code [id, motherId, fatherId]} rows (parent ids may
+    * be null), from the foreign key columns: current even after a bulk delete cleared some of them,
+    * which pets already in the persistence context would not show.
+    */
+   @Query("SELECT p.id, p.mother.id, p.father.id FROM Pet p WHERE p.id IN :ids")
+   List<Object[]> findParentIds(@Param("ids") Collection<Long> ids);
+
+
+   // --- Read path: DTO projections ---
+   // Constructor expressions selecting just the PetDto columns, in one query: no Pet is hydrated, hence
+   // neither its owner, species nor parents. Owner and parent ids are read from the foreign key columns
+   // (no join); the species name is the only join.
+
+   String PET_DTO = """
+                    SELECT new com.fhi.pet_clinic.dto.PetDto(p.id, p.name, p.sex, s.name, p.birthDate,
+                                                              p.owner.id, p.mother.id, p.father.id, p.version)
+                      FROM Pet p
+                      JOIN p.species s
+                    """;
+
+   @Query(PET_DTO + "WHERE p.id = :id")
+   Optional<PetDto> findDtoById(@Param("id") Long id);
+
+   @Query(PET_DTO + "WHERE p.owner.id = :ownerId ORDER BY p.id")
+   List<PetDto> findDtosByOwnerId(@Param("ownerId") Long ownerId);
+
+   /**
+    * {@code [id, version]} of an owner's pets, by ascending id (as {@link #findDtosByOwnerId}): enough to
+    * tell whether they changed, see OwnerService.getOwnerRevision.
+    */
+   @Query("SELECT p.id, p.version FROM Pet p WHERE p.owner.id = :ownerId ORDER BY p.id")
+   List<Object[]> findVersionsByOwnerId(@Param("ownerId") Long ownerId);
+
+   // Multi-get: one query whatever the number of ids. The IN list is padded to the next power of 2
+   // (hibernate.query.in_clause_parameter_padding), so that 5 to 8 ids share a single SQL string,
+   // hence a single cached prepared statement and execution plan.
+
+   @Query(PET_DTO + "WHERE p.id IN :ids")
+   List<PetDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+   @Query(PET_DTO + "WHERE p.owner.id IN :ownerIds ORDER BY p.id")
+   List<PetDto> findDtosByOwnerIdIn(@Param("ownerIds") Collection<Long> ownerIds);
+
+
+   /**
+    * All pets, by ascending id, for export: rows are read from the JDBC result set as the stream is
+    * consumed, {@value #EXPORT_FETCH_SIZE} at a time, instead of being materialised in a list.
+    * Must be consumed (and closed) within a transaction.
+    */
+   @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY,  value = "true") })
+   @Query("SELECT p FROM Pet p JOIN FETCH p.species ORDER BY p.id")
+   Stream<Pet> streamAllForExport();
+
+   int EXPORT_FETCH_SIZE = 500;
+
+
+   /**
+    * Fertile, non-sterile pets of a species and sex, by ascending id, at most {@code limit}: the candidates
+    * of an inbreeding matrix. Same filter as {@link #findEligibleMates}.
+    */
+   @Query(PET_DTO + FERTILE + "ORDER BY p.id")
+   List<PetDto> findFertileDtos(@Param("speciesId")         Long speciesId,
+                                @Param("sex")               Sex sex,
+                                @Param("bornAfter")         LocalDate bornAfter,
+                                @Param("bornOnOrBefore")    LocalDate bornOnOrBefore,
+                                @Param("unknownAgeFertile") boolean unknownAgeFertile,
+                                Limit limit);
+
+   @Query(PET_DTO + "WHERE p.id IN :ids AND p.sex = :sex ORDER BY p.id")
+   List<PetDto> findDtosByIdsAndSex(@Param("ids") Collection<Long> ids, @Param("sex") Sex sex);
+
+
+   // Keyset pagination: the next {@code limit} pets after a given id, optionally filtered.
+   // One method per filter combination rather than "(:x IS NULL OR ...)" conditions, so that
+   // each gets a plan that seeks on its own index (primary key, idx_pet_species_id, idx_pet_owner_id).
+
+   @Query(PET_DTO + "WHERE p.id > :afterId ORDER BY p.id")
+   List<PetDto> findDtosAfter(@Param("afterId") Long afterId, Limit limit);
+
+   @Query(PET_DTO + "WHERE p.species.id = :speciesId AND p.id > :afterId ORDER BY p.id")
+   List<PetDto> findDtosBySpeciesAfter(@Param("speciesId") Long speciesId, @Param("afterId") Long afterId, Limit limit);
+
+   @Query(PET_DTO + "WHERE p.owner.id = :ownerId AND p.id > :afterId ORDER BY p.id")
+   List<PetDto> findDtosByOwnerAfter(@Param("ownerId") Long ownerId, @Param("afterId") Long afterId, Limit limit);
+
+   @Query(PET_DTO + "WHERE p.species.id = :speciesId AND p.owner.id = :ownerId AND p.id > :afterId ORDER BY p.id")
+   List<PetDto> findDtosBySpeciesAndOwnerAfter(@Param("speciesId") Long speciesId, @Param("ownerId") Long ownerId,
+                                               @Param("afterId")   Long afterId,   Limit limit);
+
+
+   /**
+    * Fertile, non-sterile pets of a species and sex, other than {@code petId}: the candidate mates of that pet.
+    *
+    * <p>Fertility is checked in SQL as a birth date range (see {@link com.fhi.pet_clinic.model.FertilityAgeWindow}),
+    * served by index {@code idx_pet_species_sex_birth}. Pets of unknown age are included when
+    * {@code unknownAgeFertile}, mirroring {@link Pet#getAgeInYears()}'s assumption for them.</p>
+    */
+   @Query(value = PET_DTO + ELIGIBLE_MATES,
+          countQuery = "SELECT COUNT(p) FROM Pet p " + ELIGIBLE_MATES)
+   Page<PetDto> findEligibleMates(@Param("petId")             Long petId,
+                                  @Param("speciesId")         Long speciesId,
+                                  @Param("sex")               Sex sex,
+                                  @Param("bornAfter")         LocalDate bornAfter,
+                                  @Param("bornOnOrBefore")    LocalDate bornOnOrBefore,
+                                  @Param("unknownAgeFertile") boolean unknownAgeFertile,
+                                  Pageable pageable);
+
+   String FERTILE = """
+                    WHERE p.species.id = :speciesId
+                      AND p.sex = :sex
+                      AND (p.sterile IS NULL OR p.sterile = false)
+                      AND (   (p.birthDate > :bornAfter AND p.birthDate <= :bornOnOrBefore)
+                           OR (p.birthDate IS NULL AND :unknownAgeFertile = true))
+                    """;
+
+   String ELIGIBLE_MATES = FERTILE + "AND p.id <> :petId ";
+
+
+   /**
+    * Returns the ancestors of each given pet, down to {@code maxDepth} generations,
+    * in a single round trip (recursive CTE over {@code mother_id} / {@code father_id}).
+    *
+    * <p>Each row is {@code [rootId, ancestorId, name, sex, depth]}, where depth is the shortest
+    * number of generations between root and ancestor. Each root is returned as well, at depth 0,
+    * so that an unknown pet id yields no rows at all.</p>
+    *
+    * <p>{@code UNION}, not {@code UNION ALL}: in an inbred pedigree an ancestor is reached through many
+    * paths, which would multiply its rows at each generation up (2^depth in the worst case). Duplicate
+    * {@code (root, id, depth)} rows are discarded as they are produced, so each generation only expands
+    * distinct ancestors.</p>
+    */
+   @Query(value = """
+                  WITH RECURSIVE lineage(root_id, id, depth) AS (
+                       SELECT p.id, p.id, 0
+                         FROM pet p
+                        WHERE p.id IN (:petIds)
+                     UNION
+                       SELECT l.root_id, parent.id, l.depth + 1
+                         FROM lineage l
+                         JOIN pet child  ON child.id = l.id
+                         JOIN pet parent ON parent.id IN (child.mother_id, child.father_id)
+                        WHERE l.depth < :maxDepth
+                  )
+                  SELECT l.root_id, l.id, p.name, p.sex, MIN(l.depth) AS depth
+                    FROM lineage l
+                    JOIN pet p ON p.id = l.id
+                   GROUP BY l.root_id, l.id, p.name, p.sex
+                   ORDER BY l.root_id, depth, l.id
+                  """,
+          nativeQuery = true)
+   List<Object[]> findAncestryRows(@Param("petIds")   Collection<Long> petIds,
+                                   @Param("maxDepth") int maxDepth);
+
+
+   /**
+    * Returns the parent links of the given pets and of all their ancestors, down to {@code maxDepth}
+    * generations, in a single round trip: the in-memory pedigree needed by kinship computations.
+    *
+    * <p>Each row is {@code [id, motherId, fatherId]} (parent ids may be null), once per pet. Paths are
+    * deduplicated per generation, see {@link #findAncestryRows}.</p>
+    */
+   @Query(value = """
+                  WITH RECURSIVE lineage(id, depth) AS (
+                       SELECT p.id, 0
+                         FROM pet p
+                        WHERE p.id IN (:petIds)
+                     UNION
+                       SELECT parent.id, l.depth + 1
+                         FROM lineage l
+                         JOIN pet child  ON child.id = l.id
+                         JOIN pet parent ON parent.id IN (child.mother_id, child.father_id)
+                        WHERE l.depth < :maxDepth
+                  )
+                  SELECT DISTINCT p.id, p.mother_id, p.father_id
+                    FROM lineage l
+                    JOIN pet p ON p.id = l.id
+                  """,
+          nativeQuery = true)
+   List<Object[]> findPedigreeLinks(@Param("petIds")   Collection<Long> petIds,
+                                    @Param("maxDepth") int maxDepth);
+
+
+   /**
+    * Returns the descendants of a pet, down to {@code maxDepth} generations, in a single round trip.
+    *
+    * <p>Each row is {@code [id, name, sex, depth]}. The pet itself is returned at depth 0. Paths are
+    * deduplicated per generation, see {@link #findAncestryRows}.</p>
+    */
+   @Query(value = """
+                  WITH RECURSIVE progeny(id, depth) AS (
+                       SELECT p.id, 0
+                         FROM pet p
+                        WHERE p.id = :petId
+                     UNION
+                       SELECT child.id, g.depth + 1
+                         FROM progeny g
+                         JOIN pet child ON child.mother_id = g.id OR child.father_id = g.id
+                        WHERE g.depth < :maxDepth
+                  )
+                  SELECT g.id, p.name, p.sex, MIN(g.depth) AS depth
+                    FROM progeny g
+                    JOIN pet p ON p.id = g.id
+                   GROUP BY g.id, p.name, p.sex
+                   ORDER BY depth, g.id
+                  """,
+          nativeQuery = true)
+   List<Object[]> findDescendantRows(@Param("petId")    Long petId,
+                                     @Param("maxDepth") int maxDepth);
+
+
+   /**
+    * Flat snapshot of a species' population, for the in-memory population simulator: no entity is
+    * hydrated. Each row is {@code [id, sex, birthDate, sterile, degeneracyScore, motherId, fatherId]},
+    * ordered by id. Streamed {@value #EXPORT_FETCH_SIZE} rows at a time, so that a large population is
+    * never held as rows: must be consumed (and closed) within a transaction.
+    */
+   @QueryHints({ @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY,  value = "true") })
+   @Query("""
+          SELECT p.id, p.sex, p.birthDate, p.sterile, p.degeneracyScore, m.id, f.id
+            FROM Pet p
+            LEFT JOIN p.mother m
+            LEFT JOIN p.father f
+           WHERE p.species.name = :speciesName
+           ORDER BY p.id
+          """)
+   Stream<Object[]> streamPopulationRows(@Param("speciesName") String speciesName);
+
 }
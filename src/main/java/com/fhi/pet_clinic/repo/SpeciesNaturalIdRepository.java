@@ -0,0 +1,23 @@
+package com.fhi.pet_clinic.repo;
+
+import java.util.Optional;
+
+import com.fhi.pet_clinic.model.Species;
+
+/**
+ * Fragment of {@link SpeciesRepository}: lookups by natural id.
+ *
+ * <p>A derived query ({@code select s from Species s where s.name = ?}) always hits the database:
+ * only Hibernate's natural-id API goes through the natural-id cache (name to id) and then the
+ * entity cache (id to species), see {@link Species}.</p>
+ */
+public interface SpeciesNaturalIdRepository 
+{
+   /**
+    * Finds a species by its exact name (case-sensitive), from the second-level cache when possible.
+    *
+    * @param name the species name, e.g. "Dog"
+    * @return an Optional containing the Species if found
+    */
+   Optional<Species> findByName(String name);
+}
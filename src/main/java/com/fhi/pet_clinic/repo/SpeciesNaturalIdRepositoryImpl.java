@@ -0,0 +1,29 @@
+package com.fhi.pet_clinic.repo;
+
+import java.util.Optional;
+
+import org.hibernate.Session;
+
+import com.fhi.pet_clinic.model.Species;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Implementation of the {@link SpeciesNaturalIdRepository} fragment, picked up by Spring Data
+ * by its name (fragment interface name + "Impl").
+ */
+@RequiredArgsConstructor
+public class SpeciesNaturalIdRepositoryImpl implements SpeciesNaturalIdRepository 
+{
+   private final EntityManager entityManager;
+
+
+   @Override
+   public Optional<Species> findByName(String name)
+   {
+      return entityManager.unwrap(Session.class)
+                          .bySimpleNaturalId(Species.class)
+                          .loadOptional(name);
+   }
+}
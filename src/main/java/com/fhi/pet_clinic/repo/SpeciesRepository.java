@@ -3,17 +3,8 @@ package com.fhi.pet_clinic.repo;
 import com.fhi.pet_clinic.model.Species;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-import java.util.Optional;
-
-public interface SpeciesRepository extends JpaRepository<Species, Long> {
-
-    /**
-     * Finds a species by its exact name (case-sensitive).
-     *
-     * @param name the species name, e.g. "Dog"
-     * @return an Optional containing the Species if found
-     */
-    Optional<Species> findByName(String name);
+// findByName(String): see SpeciesNaturalIdRepository (served by the natural-id cache).
+public interface SpeciesRepository extends JpaRepository<Species, Long>, SpeciesNaturalIdRepository {
 
     /**
      * Returns true if a species with the given name exists.
@@ -0,0 +1,100 @@
+package com.fhi.pet_clinic.repo;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.query.TypedParameterValue;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+
+
+/**
+ * Partial updates of a single row in one statement:
+ * <pre>
+ *   UPDATE pet SET name = ?, birth_date = ?, version = version + 1 WHERE id = ? AND version = ?
+ * </pre>
+ * instead of loading the entity, changing it and letting Hibernate flush it (a SELECT, then the UPDATE).
+ * The version check is the same optimistic lock Hibernate applies on flush (see {@code @Version}).
+ *
+ * <p>Second-level cache: Hibernate can't tell what a native statement touched, and by default evicts
+ * every region; given the table, it would still evict the whole entity region. Instead, the statement
+ * declares no entity table, and just the updated row is evicted, before and after commit (a concurrent
+ * reader may have put the old row back in between). No query on these tables is cacheable, so the
+ * query cache has nothing to invalidate.</p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class VersionedUpdateRepository
+{
+   /** Query space declared by the updates: matches no entity, hence evicts no region. */
+   private static final String NO_ENTITY_SPACE = "versioned_update";
+
+   private final EntityManager entityManager;
+
+
+   /**
+    * Sets the given columns of row {@code id} and increments its version, if its version is
+    * {@code expectedVersion} (or whatever it is, if {@code null}). Must run in a transaction.
+    *
+    * @param columns column names (inlined in the SQL: must come from a fixed list, never from the client)
+    *                and their new values, typed so that nulls can be bound
+    * @return whether the row was updated (if not: unknown id, or stale version, see {@link #findVersion})
+    */
+   public boolean update(Class<?> entityClass, String table, long id, Long expectedVersion,
+                         Map<String, TypedParameterValue<?>> columns)
+   {
+      StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+      columns.keySet().forEach(column -> sql.append(column).append(" = ?, "));
+      sql.append("version = version + 1 WHERE id = ?");
+      if (expectedVersion != null) sql.append(" AND version = ?");
+
+      Query update = entityManager.createNativeQuery(sql.toString())
+                                  .setHint(HibernateHints.HINT_NATIVE_SPACES, NO_ENTITY_SPACE);
+      int position = 1;
+      for (TypedParameterValue<?> value : columns.values())
+      {  update.setParameter(position++, value);
+      }
+      update.setParameter(position++, id);
+      if (expectedVersion != null) update.setParameter(position, expectedVersion);
+
+      boolean updated = update.executeUpdate() == 1;
+      if (updated)
+      {  evict(entityClass, id);
+      }
+      return updated;
+   }
+
+
+   /**
+    * Current version of row {@code id}, to tell why an update didn't apply.
+    */
+   public Optional<Long> findVersion(String table, long id)
+   {
+      List<?> versions = entityManager.createNativeQuery("SELECT version FROM " + table + " WHERE id = ?")
+                                      .setParameter(1, id)
+                                      .getResultList();
+      return versions.isEmpty() ? Optional.empty() : Optional.of(((Number) versions.get(0)).longValue());
+   }
+
+
+   private void evict(Class<?> entityClass, long id)
+   {
+      var cache = entityManager.getEntityManagerFactory().getCache();
+      cache.evict(entityClass, id);
+      if (TransactionSynchronizationManager.isSynchronizationActive())
+      {  TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+         {  @Override
+            public void afterCommit()
+            {  cache.evict(entityClass, id);
+            }
+         });
+      }
+   }
+}
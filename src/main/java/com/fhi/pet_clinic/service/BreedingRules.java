@@ -0,0 +1,143 @@
+package com.fhi.pet_clinic.service;
+
+import java.util.random.RandomGenerator;
+
+
+/**
+ * The breeding rules themselves, as pure functions of primitive values.
+ *
+ * <p>Kept apart from {@link PetService} so that engines working on other representations than
+ * JPA entities (e.g. the {@link PopulationSimulator}'s struct-of-arrays model, or the
+ * {@link InbreedingMatrixService}) apply exactly the same rules.</p>
+ */
+public final class BreedingRules
+{
+   private BreedingRules() {}
+
+   /**
+    * Degeneracy above which offspring may be sterile.
+    */
+   public static final int STERILITY_THRESHOLD = 70;
+
+
+   /**
+    * An individual is fertile if its age falls within its species' fertility age window.
+    */
+   public static boolean isFertile(int age, int windowFrom, int windowTo)
+   {  return age >= windowFrom && age <= windowTo;
+   }
+
+
+   /**
+    * Randomizes the size of a litter around the species average (average ±1, at least 1).
+    */
+   public static int litterSize(int average, RandomGenerator random)
+   {  return Math.max(1, average + random.nextInt(3) - 1);
+   }
+
+
+   /**
+    * Calculates a smooth degeneracy score for the offspring of two parents.
+    *
+    * Degeneracy is on a scale of 0 to 100.
+    * Higher means probable sterility, reduced health & lifespan.
+    *
+    * The score is based on:
+    * - Proximity to the end of fertility window (both parents)
+    * - Inbreeding level (based on ancestry up to great-grandparents)
+    *
+    * @param motherFertilityRisk see {@link #fertilityWindowRisk}
+    * @param fatherFertilityRisk see {@link #fertilityWindowRisk}
+    * @param inbreedingRisk      0 to 100
+    * @param random              source of the score's noise
+    */
+   public static int degeneracyScore(int motherFertilityRisk, int fatherFertilityRisk, int inbreedingRisk,
+                                     RandomGenerator random)
+   {
+      int fertilityRisk = motherFertilityRisk + fatherFertilityRisk; // 0 to 200
+
+      // Combine with weighted average (fertility is 0–200, so we normalize it)
+      float normalizedFertility = fertilityRisk / 2f; // Bring back to 0–100
+      float weightedScore = 0.4f * normalizedFertility + 0.6f * inbreedingRisk;
+
+      // Add small randomness: ±10
+      int noise = random.nextInt(20) - 10; // produces value between -10 and +10
+      int finalScore = Math.round(weightedScore) + noise;
+
+      // Clamp between 0 and 100
+      return Math.max(0, Math.min(100, finalScore));
+   }
+
+
+   /**
+    * Calculates a smoothed fertility risk score based on the age relative to the fertility window.
+    *
+    * <p>This score reflects how close the individual is to the end of its fertile lifespan, using a non-linear
+    * curve for a more biologically realistic progression. The result is an integer between 0 and 100:</p>
+    *
+    * <ul>
+    *   <li><b>0</b>: just entered fertility window (minimal risk)</li>
+    *   <li><b>50</b>: midpoint of fertility window</li>
+    *   <li><b>100</b>: at or beyond the end of the fertility window (max risk)</li>
+    * </ul>
+    *
+    * <p>This implementation uses a cosine interpolation function to produce a smooth, gradual increase in risk
+    * as the individual ages through its fertility window. The curve accelerates gently and flattens out near the ends,
+    * avoiding harsh jumps and better modeling biological aging effects.</p>
+    *
+    * <p>Special cases:
+    * <ul>
+    *   <li>If the age is below or above the fertility window: returns 100</li>
+    *   <li>If the fertility window is invalid (range ≤ 0): returns 100</li>
+    * </ul>
+    * </p>
+    *
+    * @return an integer score between 0 (low fertility-related risk) and 100 (very high risk)
+    */
+   public static int fertilityWindowRisk(int age, int windowFrom, int windowTo)
+   {
+      int range = windowTo - windowFrom;
+
+      if (range <= 0 || age < windowFrom || age > windowTo)
+      {  return 100; // Invalid or outside fertile window → max risk
+      }
+
+      float ratio = (float)(age - windowFrom) / range; // normalized to [0, 1]
+      float smooth = (1 - (float)Math.cos(Math.PI * ratio)) / 2f; // cosine-smoothed [0, 1]
+
+      return Math.round(smooth * 100f);
+   }
+
+
+   /**
+    * The (overlap) inbreeding risk formula, from the sizes of both parents' ancestor sets and of their
+    * intersection.
+    *
+    * @return 0 to 100, 50 if either ancestry is unknown (empty)
+    */
+   public static int inbreedingRiskScore(int ancestors1, int ancestors2, int commonAncestors)
+   {
+      if (ancestors1 == 0 || ancestors2 == 0) {
+         return 50; // Unknown ancestry: medium default risk
+      }
+
+      int totalAncestors = ancestors1 + ancestors2;
+
+      if (commonAncestors == 0) return 0;
+
+      float similarityRatio = (float) commonAncestors / (float) (totalAncestors / 2);
+
+      return Math.round(Math.min(100f, similarityRatio * 100f)); // Cap at 100
+   }
+
+
+   /**
+    * Sterility chance increases with degeneracy, above {@link #STERILITY_THRESHOLD}.
+    */
+   public static boolean probablySterile(int degeneracy, RandomGenerator random)
+   {
+      if (degeneracy < STERILITY_THRESHOLD) return false;
+      int chance = degeneracy - STERILITY_THRESHOLD;
+      return random.nextInt(100) < chance;
+   }
+}
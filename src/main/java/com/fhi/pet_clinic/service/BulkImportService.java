@@ -0,0 +1,299 @@
+package com.fhi.pet_clinic.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.dto.ImportReport;
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.Species;
+
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Imports owners with their nested pets, e.g. when onboarding a new clinic:
+ * <pre>
+ * [ { "name": "Dorothy",
+ *     "pets": [ { "name": "Toto", "sex": "MALE", "birthDate": "2020-05-01", "species": { "name": "Dog" } } ] },
+ *   ...
+ * ]
+ * </pre>
+ * Pets have the same shape as in {@code POST /api/pets}; their parents, if any, are ignored.
+ *
+ * <p>Built for hundreds of thousands of animals:</p>
+ * <ul>
+ *   <li>the input is parsed with the Jackson streaming API, one owner field / one pet at a time:
+ *       neither the document nor an owner's pet list is ever held in memory;</li>
+ *   <li>species are resolved in memory (see {@link SpeciesRegistry}) and referenced by id (no query per pet);</li>
+ *   <li>records are persisted in chunks of {@code data-import.chunk-size} pets, one transaction each,
+ *       inserted in JDBC batches (see hibernate.jdbc.batch_size); the persistence context is flushed
+ *       and cleared after each chunk, so that it doesn't grow with the import.</li>
+ * </ul>
+ *
+ * <p>Invalid records (unknown species, constraint violations, malformed pet) are reported and skipped.
+ * If a chunk fails to commit, its records are reported as one error and the import goes on.</p>
+ */
+@Service
+@Slf4j
+public class BulkImportService
+{
+   private final EntityManager              entityManager;
+   private final PlatformTransactionManager transactionManager;
+   private final SpeciesRegistry            speciesRegistry;
+   private final ObjectMapper               objectMapper;
+   private final Validator                  validator;
+
+   private final int chunkSize;
+   private final int maxReportedErrors;
+
+
+   public BulkImportService(EntityManager              entityManager,
+                            PlatformTransactionManager transactionManager,
+                            SpeciesRegistry            speciesRegistry,
+                            ObjectMapper               objectMapper,
+                            Validator                  validator,
+                            @Value("${data-import.chunk-size:1000}")          int chunkSize,
+                            @Value("${data-import.max-reported-errors:1000}") int maxReportedErrors)
+   {  this.entityManager      = entityManager;
+      this.transactionManager = transactionManager;
+      this.speciesRegistry    = speciesRegistry;
+      this.objectMapper       = objectMapper;
+      this.validator          = validator;
+      this.chunkSize          = Math.max(1, chunkSize);
+      this.maxReportedErrors  = maxReportedErrors;
+   }
+
+
+   /**
+    * Imports an array of owners with nested pets. Not transactional as a whole: chunks are committed
+    * as they go (see class comment).
+    *
+    * @throws IllegalArgumentException if the input is not a JSON array
+    */
+   public ImportReport importOwners(InputStream in) throws IOException
+   {
+      long start = System.nanoTime();
+      ImportRun run = new ImportRun();
+
+      try (JsonParser parser = objectMapper.getFactory().createParser(in))
+      {
+         if (parser.nextToken() != JsonToken.START_ARRAY)
+         {  throw new IllegalArgumentException("Expected a JSON array of owners");
+         }
+         run.begin();
+         try
+         {  int ownerIndex = 0;
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken())
+            {  ownerIndex++;
+               if (token == JsonToken.START_OBJECT)
+               {  importOwner(parser, ownerIndex, run);
+               }
+               else
+               {  run.error("owner #" + ownerIndex, "not a JSON object");
+                  parser.skipChildren();
+               }
+            }
+            run.commit();
+            run.report.setComplete(true);
+         }
+         catch (JsonProcessingException e)
+         {  // Malformed input: keep what has been imported so far
+            run.commit();
+            run.error("input", "unreadable at line " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage());
+         }
+         finally
+         {  run.rollbackIfActive();
+         }
+      }
+
+      ImportReport report = run.report;
+      report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+      log.info("Import done: {} owner(s), {} pet(s), {} error(s) in {} ms",
+               report.getOwners(), report.getPets(), report.getErrorCount(), report.getElapsedMillis());
+      return report;
+   }
+
+
+   private void importOwner(JsonParser parser, int ownerIndex, ImportRun run) throws IOException
+   {
+      String label = "owner #" + ownerIndex;
+      Owner  owner = new Owner();    // persisted when its pets (or its end) are reached
+      String name  = null;
+      int petIndex = 0;
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME)
+      {
+         String field = parser.currentName();
+         JsonToken value = parser.nextToken();
+         switch (field)
+         {  case "name" -> name = parser.getValueAsString();
+            case "pets" ->
+            {  if (value != JsonToken.START_ARRAY)
+               {  run.error(label, "pets is not an array");
+                  parser.skipChildren();
+                  continue;
+               }
+               owner.setName(name);
+               run.persistOwner(owner);
+               while (parser.nextToken() != JsonToken.END_ARRAY)
+               {  JsonNode petNode = parser.readValueAsTree();   // one pet at a time
+                  importPet(petNode, owner.getId(), label + " / pet #" + (++petIndex), run);
+               }
+            }
+            default -> parser.skipChildren();   // unknown fields (e.g. "_comment"); no-op on scalars
+         }
+      }
+
+      if (owner.getId() == null)
+      {  owner.setName(name);
+         run.persistOwner(owner);
+      }
+      else if (name != null && !name.equals(owner.getName()))   // name given after the pets
+      {  run.renameOwner(owner.getId(), name);
+      }
+   }
+
+
+   private void importPet(JsonNode petNode, Long ownerId, String label, ImportRun run) throws IOException
+   {
+      if (run.lostOwnerIds.contains(ownerId))
+      {  run.error(label, "owner was not imported");
+         return;
+      }
+
+      Pet pet;
+      try
+      {  pet = objectMapper.treeToValue(petNode, Pet.class);
+      }
+      catch (JsonProcessingException e)
+      {  run.error(label, e.getOriginalMessage());
+         return;
+      }
+      pet.setId(null);
+      pet.setMother(null);   // parents can't be referenced in this format
+      pet.setFather(null);
+
+      String speciesName = pet.getSpecies() != null ? pet.getSpecies().getName() : null;
+      Species species = speciesRegistry.findByName(speciesName).orElse(null);
+      if (species == null)
+      {  run.error(label, "unknown species: " + speciesName);
+         return;
+      }
+      // Just the foreign keys are needed: the registry's (detached) species, a reference to the owner
+      pet.setSpecies(species);
+      pet.setOwner(entityManager.getReference(Owner.class, ownerId));
+
+      Set<ConstraintViolation<Pet>> violations = validator.validate(pet);
+      if (!violations.isEmpty())
+      {  run.error(label, violations.stream()
+                                    .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                                    .collect(Collectors.joining(", ")));
+         return;
+      }
+
+      entityManager.persist(pet);
+      run.petPersisted(label);
+   }
+
+
+   /**
+    * State of one import: current transaction and chunk, report.
+    */
+   private final class ImportRun
+   {
+      private final ImportReport report       = new ImportReport();
+      private final Set<Long>    lostOwnerIds = new HashSet<>();   // in a chunk that failed
+
+      private TransactionStatus transaction;
+      private int               chunkOwners;
+      private int               chunkPets;
+      private final List<Long>  chunkOwnerIds = new ArrayList<>();
+      private String            chunkFirstRecord;
+      private String            chunkLastRecord;
+
+      void begin()
+      {  transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+      }
+
+      void persistOwner(Owner owner)
+      {  entityManager.persist(owner);
+         chunkOwners++;
+         chunkOwnerIds.add(owner.getId());
+      }
+
+      void renameOwner(Long ownerId, String name)
+      {  if (lostOwnerIds.contains(ownerId)) return;
+         Owner owner = entityManager.find(Owner.class, ownerId);   // may have been cleared with its chunk
+         if (owner != null) owner.setName(name);
+      }
+
+      void petPersisted(String label)
+      {  if (chunkPets++ == 0) chunkFirstRecord = label;
+         chunkLastRecord = label;
+         if (chunkPets >= chunkSize)
+         {  commit();
+            begin();
+         }
+      }
+
+      /**
+       * Flushes (in JDBC batches) and commits the current chunk, then clears the persistence context.
+       */
+      void commit()
+      {
+         try
+         {  entityManager.flush();
+            entityManager.clear();
+            transactionManager.commit(transaction);
+            report.setOwners(report.getOwners() + chunkOwners);
+            report.setPets(report.getPets() + chunkPets);
+         }
+         catch (RuntimeException e)
+         {  log.warn("Import chunk failed: {}", e.getMessage());
+            rollbackIfActive();
+            entityManager.clear();
+            lostOwnerIds.addAll(chunkOwnerIds);
+            error(chunkPets > 0 ? chunkFirstRecord + " to " + chunkLastRecord : "chunk",
+                  "not imported (" + chunkOwners + " owner(s), " + chunkPets + " pet(s)): " + e.getMessage());
+         }
+         log.info("Import progress: {} owner(s), {} pet(s), {} error(s)",
+                  report.getOwners(), report.getPets(), report.getErrorCount());
+         chunkOwners = 0;
+         chunkPets   = 0;
+         chunkOwnerIds.clear();
+      }
+
+      void rollbackIfActive()
+      {  if (transaction != null && !transaction.isCompleted())
+         {  transactionManager.rollback(transaction);
+         }
+      }
+
+      void error(String record, String message)
+      {  report.setErrorCount(report.getErrorCount() + 1);
+         if (report.getErrors().size() < maxReportedErrors)
+         {  report.getErrors().add(new ImportReport.RecordError(record, message));
+         }
+      }
+   }
+}
@@ -0,0 +1,59 @@
+package com.fhi.pet_clinic.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import com.fhi.pet_clinic.dto.CacheRegionStats;
+
+import jakarta.persistence.EntityManagerFactory;
+
+
+/**
+ * Second-level cache counters, per region (see ehcache.xml), from Hibernate's statistics.
+ *
+ * <p>Counted only when {@code hibernate.generate_statistics} is on (see application.yml);
+ * otherwise all counters stay at zero.</p>
+ */
+@Service
+public class CacheStatisticsService
+{
+   private final Statistics statistics;
+
+
+   public CacheStatisticsService(EntityManagerFactory entityManagerFactory)
+   {  this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+   }
+
+
+   /**
+    * @return one entry per region (entities, natural ids, query cache), by name
+    */
+   public List<CacheRegionStats> getRegionStatistics()
+   {
+      return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                   .sorted()
+                   .map(this::toDto)
+                   .toList();
+   }
+
+
+   public boolean isEnabled()
+   {  return statistics.isStatisticsEnabled();
+   }
+
+
+   private CacheRegionStats toDto(String region)
+   {
+      CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+      long hits   = stats != null ? stats.getHitCount()  : 0;
+      long misses = stats != null ? stats.getMissCount() : 0;
+      long puts   = stats != null ? stats.getPutCount()  : 0;
+      double hitRatio = hits + misses > 0 ? (double) hits / (hits + misses) : 0;
+      return new CacheRegionStats(region, hits, misses, puts, hitRatio);
+   }
+}
@@ -0,0 +1,134 @@
+package com.fhi.pet_clinic.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.repo.OwnerRepository;
+import com.fhi.pet_clinic.repo.PetRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Exports whole tables as newline-delimited JSON (one object per line), in constant memory.
+ *
+ * <p>Rows are streamed from the database (see {@link PetRepository#streamAllForExport()}) and written
+ * straight to the output stream with a {@link JsonGenerator}, one field at a time: no list of entities,
+ * no intermediate tree or string. The persistence context is cleared every
+ * {@link PetRepository#EXPORT_FETCH_SIZE} rows, otherwise every exported entity would stay
+ * referenced by it until the end of the transaction.</p>
+ *
+ * <p>Rows are flat: associations are exported as ids, not nested objects.</p>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService
+{
+   private final PetRepository   petRepository;
+   private final OwnerRepository ownerRepository;
+   private final EntityManager   entityManager;
+   private final ObjectMapper    objectMapper;
+
+
+   /**
+    * Writes all pets to {@code out}, by ascending id.
+    *
+    * @return the number of pets exported
+    */
+   @Transactional(readOnly = true)
+   public long exportPets(OutputStream out) throws IOException
+   {
+      try (Stream<Pet> pets = petRepository.streamAllForExport())
+      {  return export(pets, out, ExportService::writePet);
+      }
+   }
+
+
+   /**
+    * Writes all owners to {@code out}, by ascending id.
+    *
+    * @return the number of owners exported
+    */
+   @Transactional(readOnly = true)
+   public long exportOwners(OutputStream out) throws IOException
+   {
+      try (Stream<Owner> owners = ownerRepository.streamAllForExport())
+      {  return export(owners, out, ExportService::writeOwner);
+      }
+   }
+
+
+   @FunctionalInterface
+   private interface RowWriter<T>
+   {  void write(JsonGenerator generator, T row) throws IOException;
+   }
+
+   private <T> long export(Stream<T> rows, OutputStream out, RowWriter<T> rowWriter) throws IOException
+   {
+      long count = 0;
+      // A bare generator: one object per line, whatever the mapper's writers are configured to do
+      try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+      {  generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);   // the servlet container owns the stream
+         generator.setRootValueSeparator(null);                         // lines are separated by the '\n' below only
+
+         for (Iterator<T> it = rows.iterator(); it.hasNext(); )
+         {  rowWriter.write(generator, it.next());
+            generator.writeRaw('\n');
+            if (++count % PetRepository.EXPORT_FETCH_SIZE == 0)
+            {  entityManager.clear();   // detach what has been written
+               generator.flush();       // and send it to the client
+            }
+         }
+      }
+      log.debug("Exported {} row(s)", count);
+      return count;
+   }
+
+
+   private static void writePet(JsonGenerator g, Pet pet) throws IOException
+   {
+      g.writeStartObject();
+      g.writeNumberField("id", pet.getId());
+      g.writeStringField("name", pet.getName());
+      g.writeStringField("birthDate", pet.getBirthDate() != null ? pet.getBirthDate().toString() : null);
+      g.writeStringField("sex", pet.getSex() != null ? pet.getSex().name() : null);
+      g.writeStringField("species", pet.getSpecies().getName());
+      writeId(g, "ownerId",  pet.getOwner()  != null ? pet.getOwner().getId()  : null);
+      writeId(g, "motherId", pet.getMother() != null ? pet.getMother().getId() : null);
+      writeId(g, "fatherId", pet.getFather() != null ? pet.getFather().getId() : null);
+      if (pet.getDegeneracyScore() != null) g.writeNumberField("degeneracyScore", pet.getDegeneracyScore());
+      else                                  g.writeNullField("degeneracyScore");
+      if (pet.getSterile() != null)         g.writeBooleanField("sterile", pet.getSterile());
+      else                                  g.writeNullField("sterile");
+      g.writeStringField("coatColor", pet.getCoatColor());
+      g.writeStringField("eyeColor", pet.getEyeColor());
+      g.writeEndObject();
+   }
+
+   private static void writeOwner(JsonGenerator g, Owner owner) throws IOException
+   {
+      g.writeStartObject();
+      g.writeNumberField("id", owner.getId());
+      g.writeStringField("name", owner.getName());
+      writeId(g, "petClinicId", owner.getPetClinic() != null ? owner.getPetClinic().getId() : null);
+      g.writeEndObject();
+   }
+
+   private static void writeId(JsonGenerator g, String fieldName, Long id) throws IOException
+   {
+      if (id != null) g.writeNumberField(fieldName, id);
+      else            g.writeNullField(fieldName);
+   }
+}
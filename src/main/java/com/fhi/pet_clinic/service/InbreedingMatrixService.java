@@ -0,0 +1,217 @@
+package com.fhi.pet_clinic.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fhi.pet_clinic.dto.InbreedingMatrix;
+import com.fhi.pet_clinic.dto.PetDto;
+import com.fhi.pet_clinic.model.FertilityAgeWindow;
+import com.fhi.pet_clinic.model.Sex;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.PetRepository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Computes the inbreeding risk matrix of a set of candidate pets, for breeding planners: every female
+ * by every male, the only pairs that can be mated.
+ *
+ * <p>Calling {@link PetService#mate} for each of the F x M pairs would re-read both ancestries every time.
+ * Instead:</p>
+ * <ul>
+ *   <li>candidates are read as DTOs, filtered by the query, and capped, females and males together
+ *       (see {@code pedigree.matrix.max-candidates});</li>
+ *   <li>all ancestries are loaded once (one closure-table query, see {@link PetAncestryService});</li>
+ *   <li>ancestor ids are renumbered into a dense local id space, and each ancestry is stored as a
+ *       bitset ({@code long[]} words) over it;</li>
+ *   <li>each pair's common ancestor count is then a word-wise {@code AND} + popcount, computed
+ *       in parallel, row by row, on a dedicated fork-join pool.</li>
+ * </ul>
+ *
+ * <p>The scoring formula is the one used by {@link PetService} when mating, see {@link BreedingRules}.</p>
+ */
+@Service
+@Slf4j
+public class InbreedingMatrixService
+{
+   private static final int ANCESTRY_DEPTH = 3; // same as PetService's inbreeding check
+
+   private final PetRepository      petRepository;
+   private final PetAncestryService petAncestryService;
+   private final SpeciesRegistry    speciesRegistry;
+
+   private final int maxCandidates;
+
+   /**
+    * Dedicated pool, so that a large matrix doesn't starve the common pool
+    * (used by parallel streams everywhere else, e.g. batch mating).
+    */
+   private final ForkJoinPool pool;
+
+
+   public InbreedingMatrixService(PetRepository      petRepository,
+                                  PetAncestryService petAncestryService,
+                                  SpeciesRegistry    speciesRegistry,
+                                  @Value("${pedigree.matrix.max-candidates:5000}") int maxCandidates,
+                                  @Value("${pedigree.matrix.parallelism:0}")       int parallelism)
+   {  this.petRepository      = petRepository;
+      this.petAncestryService = petAncestryService;
+      this.speciesRegistry    = speciesRegistry;
+      this.maxCandidates      = maxCandidates;
+      this.pool               = new ForkJoinPool(parallelism > 0 ? parallelism
+                                                                 : Runtime.getRuntime().availableProcessors());
+   }
+
+   @PreDestroy
+   public void shutdown()
+   {  pool.shutdown();
+   }
+
+
+   /**
+    * Computes the matrix of all fertile, non-sterile pets of a species. The candidates are filtered
+    * by the query, and read as DTOs: no entity is loaded.
+    *
+    * @throws IllegalArgumentException if there are more candidates, females and males together, than
+    *                                  {@code pedigree.matrix.max-candidates}
+    */
+   @Transactional(readOnly = true)
+   public InbreedingMatrix computeForSpecies(String speciesName)
+   {
+      Species species = speciesRegistry.findByName(speciesName)
+                                       .orElseThrow(() -> new IllegalArgumentException("Unknown species: " + speciesName));
+      FertilityAgeWindow window = species.getFertilityAgeWindow();
+      LocalDate today = LocalDate.now();
+      LocalDate bornAfter         = window.fertileIfBornAfter(today);
+      LocalDate bornOnOrBefore    = window.fertileIfBornOnOrBefore(today);
+      boolean   unknownAgeFertile = BreedingRules.isFertile(species.getExpectedLifespan() / 2,   // see Pet.getAgeInYears()
+                                                            window.getFrom(), window.getTo());
+
+      // The cap covers females and males together: each query reads one more than what is left of it,
+      // to tell "at the limit" from "over it" without counting
+      List<PetDto> females = petRepository.findFertileDtos(species.getId(), Sex.FEMALE, bornAfter, bornOnOrBefore,
+                                                           unknownAgeFertile, Limit.of(maxCandidates + 1));
+      checkCandidates(females.size());
+      List<PetDto> males   = petRepository.findFertileDtos(species.getId(), Sex.MALE, bornAfter, bornOnOrBefore,
+                                                           unknownAgeFertile, Limit.of(maxCandidates - females.size() + 1));
+      checkCandidates(females.size() + males.size());
+      return compute(females, males);
+   }
+
+
+   /**
+    * Computes the matrix of the given pets. Unknown ids, and pets of unknown sex, are ignored.
+    *
+    * @throws IllegalArgumentException if there are more distinct ids than {@code pedigree.matrix.max-candidates}
+    */
+   @Transactional(readOnly = true)
+   public InbreedingMatrix computeForPets(List<Long> petIds)
+   {
+      Set<Long> ids = new LinkedHashSet<>(petIds);
+      checkCandidates(ids.size());
+      if (ids.isEmpty())
+      {  return compute(List.of(), List.of());
+      }
+      return compute(petRepository.findDtosByIdsAndSex(ids, Sex.FEMALE),
+                     petRepository.findDtosByIdsAndSex(ids, Sex.MALE));
+   }
+
+
+   private void checkCandidates(int n)
+   {
+      if (n > maxCandidates)
+      {  throw new IllegalArgumentException("Too many candidates for an inbreeding matrix: over the limit of "
+                                            + maxCandidates + " females and males together");
+      }
+   }
+
+   private InbreedingMatrix compute(List<PetDto> females, List<PetDto> males)
+   {
+      Map<Long, List<Long>> parentIdsByPet = new LinkedHashMap<>();
+      females.forEach(pet -> parentIdsByPet.put(pet.getId(), parentIdsOf(pet)));
+      males.forEach(pet -> parentIdsByPet.put(pet.getId(), parentIdsOf(pet)));
+      Map<Long, long[]> ancestries = petAncestryService.findAncestorIds(parentIdsByPet, ANCESTRY_DEPTH);
+
+      // Dense local id space: ancestor id -> 0..k-1
+      Map<Long, Integer> denseIds = new HashMap<>();
+      Ancestries femaleBits = Ancestries.of(females, ancestries, denseIds);
+      Ancestries maleBits   = Ancestries.of(males, ancestries, denseIds);
+      log.debug("Inbreeding matrix: {} female(s) x {} male(s), {} distinct ancestor(s)",
+                females.size(), males.size(), denseIds.size());
+
+      int[][] risks = new int[females.size()][males.size()];
+      pool.submit(() -> IntStream.range(0, females.size()).parallel().forEach(i ->
+      {  for (int j = 0; j < males.size(); j++)
+         {  risks[i][j] = BreedingRules.inbreedingRiskScore(femaleBits.sizes[i], maleBits.sizes[j],
+                                                            commonBits(femaleBits.bits[i], maleBits.bits[j]));
+         }
+      })).join();
+
+      return new InbreedingMatrix(females.stream().map(PetDto::getId).toList(),
+                                  males.stream().map(PetDto::getId).toList(),
+                                  risks);
+   }
+
+
+   /**
+    * Ancestries of one side of the matrix, as bitsets over the dense id space, and their sizes.
+    */
+   private record Ancestries(long[][] bits, int[] sizes)
+   {
+      static Ancestries of(List<PetDto> pets, Map<Long, long[]> ancestries, Map<Long, Integer> denseIds)
+      {
+         long[][] bits = new long[pets.size()][];
+         int[] sizes   = new int[pets.size()];
+         for (int i = 0; i < pets.size(); i++)
+         {  BitSet bitSet = new BitSet();
+            for (long ancestorId : ancestries.get(pets.get(i).getId()))
+            {  bitSet.set(denseIds.computeIfAbsent(ancestorId, id -> denseIds.size()));
+            }
+            bits[i]  = bitSet.toLongArray();
+            sizes[i] = bitSet.cardinality();
+         }
+         return new Ancestries(bits, sizes);
+      }
+   }
+
+   private static List<Long> parentIdsOf(PetDto pet)
+   {
+      List<Long> ids = new ArrayList<>(2);
+      if (pet.getMotherId() != null)
+      {  ids.add(pet.getMotherId());
+      }
+      if (pet.getFatherId() != null && !pet.getFatherId().equals(pet.getMotherId()))
+      {  ids.add(pet.getFatherId());
+      }
+      return ids;
+   }
+
+
+   /**
+    * Number of bits set in both bitsets, without allocating their intersection.
+    */
+   private static int commonBits(long[] a, long[] b)
+   {
+      int common = 0;
+      for (int w = 0, len = Math.min(a.length, b.length); w < len; w++)
+      {  common += Long.bitCount(a[w] & b[w]);
+      }
+      return common;
+   }
+}
@@ -0,0 +1,21 @@
+package com.fhi.pet_clinic.service;
+
+/**
+ * How {@link PetService} scores the inbreeding risk of a mating.
+ *
+ * <p>Selected with the {@code pedigree.inbreeding.strategy} property.</p>
+ */
+public enum InbreedingRiskStrategy 
+{
+   /**
+    * Share of common ancestors among both parents' ancestors, over 3 generations.
+    * Cheap, but only a rough proxy.
+    */
+   OVERLAP,
+
+   /**
+    * Wright's coefficient of inbreeding of the offspring (i.e. the kinship of its parents),
+    * over a configurable depth. See {@link KinshipService}.
+    */
+   KINSHIP;
+}
@@ -0,0 +1,344 @@
+package com.fhi.pet_clinic.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fhi.pet_clinic.dto.JobStatus;
+import com.fhi.pet_clinic.dto.JobStatus.State;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Runs long bulk operations (imports, exports, mass deletes, simulations) in the background, so that
+ * they don't hold an HTTP request thread for minutes, nor get cut by the load balancer's timeout.
+ * The client submits a job, gets its id at once, then polls its status and fetches its result.
+ *
+ * <p>Bounded on every side:</p>
+ * <ul>
+ *   <li>{@code jobs.workers} jobs run at once, on dedicated threads (they do JDBC and file I/O);</li>
+ *   <li>at most {@code jobs.queue-capacity} wait for a worker: beyond, {@link #submit} is rejected
+ *       (503, see JobExceptionHandler) rather than queuing work nobody will wait for;</li>
+ *   <li>the last {@code jobs.max-retained} finished jobs are kept, with their results: older ones are
+ *       forgotten (and their result files deleted, once no longer being downloaded) as new ones finish.</li>
+ * </ul>
+ *
+ * <p>Jobs live in memory: they are lost on restart, as are those still queued or running.</p>
+ */
+@Service
+@Slf4j
+public class JobService
+{
+   /**
+    * The work of a job. Reports its progress through the job, and returns its result (fetched as
+    * JSON), or {@code null} if it wrote it to {@link Job#openResultFile} instead.
+    */
+   @FunctionalInterface
+   public interface Work
+   {  Object run(Job job) throws Exception;
+   }
+
+
+   /**
+    * A submitted job. Written by its worker thread only, read by any request: fields are volatile.
+    */
+   public static final class Job
+   {
+      private final String  id;
+      private final String  type;
+      private final Instant submittedAt = Instant.now();
+
+      private volatile State   state = State.QUEUED;
+      private volatile Instant startedAt;
+      private volatile Instant finishedAt;
+
+      private volatile long    processed;
+      private volatile Long    total;
+      private volatile String  unit;
+
+      private volatile Object  result;
+      private volatile Path    resultFile;
+      private volatile String  resultContentType;
+      private volatile String  error;
+
+      // Downloads of the result file in progress, and whether the job has been forgotten: the file is
+      // only deleted once both are over. Guarded by the job.
+      private int     readers;
+      private boolean forgotten;
+
+      private Job(String id, String type)
+      {  this.id   = id;
+         this.type = type;
+      }
+
+      public String getId()
+      {  return id;
+      }
+
+      public State getState()
+      {  return state;
+      }
+
+      /**
+       * Declares the amount of work, if known beforehand, and the unit progress is counted in.
+       *
+       * @param total {@code null} if unknown
+       */
+      public void expect(Long total, String unit)
+      {  this.total = total;
+         this.unit  = unit;
+      }
+
+      public void advance(long amount)
+      {  processed += amount;   // single writer
+      }
+
+      /**
+       * Opens the file the result is streamed to, when it is too large to be held in memory (exports).
+       * Deleted when the job is forgotten.
+       */
+      public OutputStream openResultFile(String contentType) throws IOException
+      {
+         Path file = Files.createTempFile("job-" + id + "-", ".result");
+         resultFile        = file;
+         resultContentType = contentType;
+         return Files.newOutputStream(file);
+      }
+
+      /** The in-memory result, if the job succeeded and had one. */
+      public Optional<Object> getResult()
+      {  return Optional.ofNullable(result);
+      }
+
+      /**
+       * Opens the result file for a download, if the job succeeded and wrote one. The file is not
+       * deleted (should the job be forgotten meanwhile) until the stream is closed.
+       *
+       * @return empty if there is no result file, or the job has been forgotten
+       */
+      public Optional<InputStream> openResultFile() throws IOException
+      {
+         Path file = resultFile;
+         synchronized (this)
+         {  if (state != State.SUCCEEDED || file == null || forgotten)
+            {  return Optional.empty();
+            }
+            readers++;
+         }
+         try
+         {  return Optional.of(new FilterInputStream(Files.newInputStream(file))
+            {  private boolean closed;
+
+               @Override
+               public void close() throws IOException
+               {  try
+                  {  super.close();
+                  }
+                  finally
+                  {  if (!closed)
+                     {  closed = true;
+                        endDownload();
+                     }
+                  }
+               }
+            });
+         }
+         catch (IOException | RuntimeException e)
+         {  endDownload();
+            throw e;
+         }
+      }
+
+      public String getResultContentType()
+      {  return resultContentType;
+      }
+
+      /**
+       * @param resultUrl where the result can be fetched, once there is one
+       */
+      public JobStatus toStatus(String resultUrl)
+      {
+         State current = state;   // read first: the fields below are written before it changes
+         return new JobStatus(id, type, current, submittedAt, startedAt, finishedAt, processed, total, unit,
+                              error, current == State.SUCCEEDED ? resultUrl : null);
+      }
+
+      private boolean isFinished()
+      {  State current = state;
+         return current == State.SUCCEEDED || current == State.FAILED;
+      }
+
+      private void endDownload()
+      {
+         synchronized (this)
+         {  if (--readers > 0 || !forgotten)
+            {  return;
+            }
+         }
+         deleteResultFile();
+      }
+
+      /**
+       * Deletes the result file now, or once the downloads in progress are over.
+       */
+      private void forget()
+      {
+         synchronized (this)
+         {  forgotten = true;
+            if (readers > 0)
+            {  return;
+            }
+         }
+         deleteResultFile();
+      }
+
+      private void deleteResultFile()
+      {
+         Path file = resultFile;
+         if (file != null)
+         {  try
+            {  Files.deleteIfExists(file);
+            }
+            catch (IOException e)
+            {  log.warn("Cannot delete result file {} of job {}: {}", file, id, e.getMessage());
+            }
+         }
+      }
+   }
+
+
+   private final ThreadPoolExecutor executor;
+   private final int                maxRetained;
+
+   // All jobs (queued, running, finished), by id, in submission order. Guarded by itself, never held for I/O.
+   private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+
+   public JobService(@Value("${jobs.workers:2}")         int workers,
+                     @Value("${jobs.queue-capacity:20}") int queueCapacity,
+                     @Value("${jobs.max-retained:100}")  int maxRetained)
+   {
+      AtomicInteger threadCount = new AtomicInteger();
+      this.executor    = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                                                new ArrayBlockingQueue<>(queueCapacity),
+                                                task -> new Thread(task, "job-" + threadCount.incrementAndGet()));
+      this.maxRetained = maxRetained;
+   }
+
+   @PreDestroy
+   public void shutdown()
+   {
+      executor.shutdownNow();
+      List<Job> all;
+      synchronized (jobs)
+      {  all = new ArrayList<>(jobs.values());
+         jobs.clear();
+      }
+      all.forEach(Job::forget);
+   }
+
+
+   /**
+    * Queues a job.
+    *
+    * @param type what it does, e.g. "pet-export"
+    * @throws RejectedExecutionException the queue is full: retry later
+    */
+   public Job submit(String type, Work work)
+   {
+      Job job = new Job(UUID.randomUUID().toString(), type);
+      synchronized (jobs)
+      {  jobs.put(job.id, job);
+      }
+      try
+      {  executor.execute(() -> run(job, work));
+      }
+      catch (RejectedExecutionException e)
+      {  synchronized (jobs)
+         {  jobs.remove(job.id);
+         }
+         throw e;
+      }
+      log.debug("Job {} ({}) queued", job.id, type);
+      return job;
+   }
+
+   /**
+    * @return the job, unless it is unknown or has been forgotten (see {@code jobs.max-retained})
+    */
+   public Optional<Job> find(String id)
+   {
+      synchronized (jobs)
+      {  return Optional.ofNullable(jobs.get(id));
+      }
+   }
+
+
+   private void run(Job job, Work work)
+   {
+      job.startedAt = Instant.now();
+      job.state     = State.RUNNING;
+      try
+      {  job.result     = work.run(job);
+         job.finishedAt = Instant.now();
+         job.state      = State.SUCCEEDED;
+         log.info("Job {} ({}) succeeded in {} ms", job.id, job.type,
+                  job.finishedAt.toEpochMilli() - job.startedAt.toEpochMilli());
+      }
+      catch (Throwable e)   // errors too (e.g. OutOfMemoryError): the job must not stay RUNNING forever
+      {  job.deleteResultFile();   // partial
+         job.error      = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+         job.finishedAt = Instant.now();
+         job.state      = State.FAILED;
+         log.warn("Job {} ({}) failed", job.id, job.type, e);
+         if (e instanceof Error error)
+         {  throw error;   // after forgetOldest: the worker thread is replaced by the executor
+         }
+      }
+      finally
+      {  forgetOldest();
+      }
+   }
+
+   /**
+    * Forgets the oldest finished jobs beyond {@code jobs.max-retained}. Queued and running ones are
+    * bounded by the executor.
+    */
+   private void forgetOldest()
+   {
+      List<Job> forgotten = new ArrayList<>();
+      synchronized (jobs)
+      {  long finished = jobs.values().stream().filter(Job::isFinished).count();
+         for (Iterator<Job> it = jobs.values().iterator(); it.hasNext() && finished > maxRetained; )
+         {  Job job = it.next();
+            if (job.isFinished())
+            {  it.remove();
+               forgotten.add(job);
+               finished--;
+            }
+         }
+      }
+      forgotten.forEach(Job::forget);
+   }
+}
@@ -0,0 +1,323 @@
+package com.fhi.pet_clinic.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fhi.pet_clinic.repo.PetRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Computes Wright's coefficient of inbreeding through kinship coefficients, with a memoised
+ * kinship cache.
+ *
+ * <p>The kinship {@code f(a, b)} of two pets is the probability that two alleles drawn at random,
+ * one from each, are identical by descent. The coefficient of inbreeding of their offspring is
+ * {@code F = f(mother, father)}. It is computed with the classic recursion:</p>
+ * <ul>
+ *   <li>{@code f(a, a) = 1/2 (1 + f(mother(a), father(a)))}</li>
+ *   <li>{@code f(a, b) = 1/2 (f(mother(a), b) + f(father(a), b))}, where {@code a} is not an
+ *       ancestor of {@code b}</li>
+ *   <li>unknown parents are unrelated founders (kinship 0)</li>
+ * </ul>
+ *
+ * <p>The recursion is bounded: each step goes one generation up on one side, and after
+ * {@code 2 x generations} steps the remaining pair is treated as unrelated. Without memoisation
+ * the cost would double with each generation; with it, each (a, b, remaining depth) triple is
+ * computed once, and reused across matings.</p>
+ *
+ * <p>Of two different pets, the one expanded is the one with more generations of known ancestry
+ * above it (see {@link Pedigree#generationOf}): an ancestor always has fewer than its descendants, so
+ * the expanded pet is never an ancestor of the other. Ids can't tell: a pet imported or restored after
+ * its offspring has a larger id than they do. Generations are counted up to the remaining depth only:
+ * beyond it, they would depend on where the loaded pedigree stops, which differs with the pets it was
+ * loaded for, and the cached value of a pair could come from one expansion order or another. Up to it,
+ * every pedigree loaded for the pets whose kinship is asked holds the same ancestors: the order, hence
+ * the value, only depends on the pair and the depth, which make its key.</p>
+ *
+ * <p>Cache invalidation: a kinship value only depends on the ancestry of both pets. Saving a new pet
+ * invalidates nothing (it is nobody's ancestor yet); re-saving or deleting a pet evicts the entries
+ * of that pet and of its descendants. A computation running meanwhile, from a pedigree loaded before
+ * the eviction, must not put its values back: each eviction advances an epoch, and a value is only
+ * kept if the epoch is still that of its pedigree once it is in the cache.</p>
+ */
+@Service
+@Slf4j
+public class KinshipService
+{
+   /**
+    * A pet's parents; {@code null} when unknown.
+    */
+   record Parents(Long motherId, Long fatherId) {}
+
+   /**
+    * The parent links of a set of pets and their ancestors, loaded in one query.
+    * Immutable once built, so it can be shared by parallel computations.
+    */
+   public static final class Pedigree
+   {
+      private final Map<Long, Parents> parents;
+      private final Set<Long>          petIds;  // loaded for: their ancestors are complete up to the depth
+      private final Map<Long, Integer> generations = new HashMap<>();
+      private final long               epoch;   // of the kinship cache, when loaded
+
+      private Pedigree(Map<Long, Parents> parents, Set<Long> petIds, long epoch)
+      {  this.parents = parents;
+         this.petIds  = petIds;
+         this.epoch   = epoch;
+         parents.keySet().forEach(this::computeGeneration);   // all computed here: then read-only, shareable
+      }
+
+      /**
+       * Longest line of known ancestors above a pet, counted up to {@code max}: 0 for a pet whose
+       * parents are unknown, 1 + its parents' otherwise. Within the loaded pedigree, so only exact up to
+       * the generations loaded above the pet, see class comment.
+       */
+      int generationOf(long petId, int max)
+      {  return Math.min(generations.getOrDefault(petId, 0), max);
+      }
+
+      /**
+       * Whether {@code ancestorId} is a parent of {@code petId}, or an ancestor up to {@code depth}
+       * generations above it.
+       */
+      boolean isAncestor(long ancestorId, long petId, int depth)
+      {
+         Parents p = parents.get(petId);
+         if (p == null || depth <= 0) return false;
+         return (p.motherId() != null && (p.motherId() == ancestorId || isAncestor(ancestorId, p.motherId(), depth - 1)))
+             || (p.fatherId() != null && (p.fatherId() == ancestorId || isAncestor(ancestorId, p.fatherId(), depth - 1)));
+      }
+
+      private void checkLoadedFor(long petId)
+      {
+         if (!petIds.contains(petId))
+         {  throw new IllegalArgumentException("Pedigree not loaded for pet " + petId);
+         }
+      }
+
+      private int computeGeneration(long petId)
+      {
+         Integer known = generations.get(petId);
+         if (known != null) return known;
+         Parents p = parents.get(petId);
+         int generation = 0;
+         if (p != null && p.motherId() != null) generation = Math.max(generation, 1 + computeGeneration(p.motherId()));
+         if (p != null && p.fatherId() != null) generation = Math.max(generation, 1 + computeGeneration(p.fatherId()));
+         generations.put(petId, generation);   // recursion as deep as the loaded generations
+         return generation;
+      }
+
+      Parents parentsOf(long petId)
+      {  return parents.get(petId);
+      }
+
+      boolean hasKnownParent(long petId)
+      {  Parents p = parents.get(petId);
+         return p != null && (p.motherId() != null || p.fatherId() != null);
+      }
+   }
+
+   /**
+    * Cache key: the pair is unordered, hence normalised to (smaller id, larger id).
+    */
+   private record KinshipKey(long low, long high, int depth)
+   {
+      static KinshipKey of(long a, long b, int depth)
+      {  return a <= b ? new KinshipKey(a, b, depth) : new KinshipKey(b, a, depth);
+      }
+   }
+
+
+   private final PetRepository petRepository;
+
+   /**
+    * Generations searched on each side for common ancestors.
+    */
+   private final int generations;
+
+   private final int maxCacheEntries;
+
+   private final Map<KinshipKey, Double> cache = new ConcurrentHashMap<>();
+
+   // Advanced by each eviction, see class comment
+   private final AtomicLong epoch = new AtomicLong();
+
+
+   public KinshipService(PetRepository petRepository,
+                         @Value("${pedigree.kinship.generations:6}")           int generations,
+                         @Value("${pedigree.kinship.cache.max-entries:500000}") int maxCacheEntries)
+   {  this.petRepository   = petRepository;
+      this.generations     = Math.max(1, Math.min(generations, PetAncestryService.MAX_PEDIGREE_DEPTH / 2));
+      this.maxCacheEntries = maxCacheEntries;
+   }
+
+
+   /**
+    * Loads, in one query, the pedigree needed to compute the kinship of any pair among the given pets.
+    */
+   public Pedigree loadPedigree(Collection<Long> petIds)
+   {
+      long loadedAt = epoch.get();   // before the query: an eviction during it invalidates its values
+      Map<Long, Parents> parents = new HashMap<>();
+      if (!petIds.isEmpty())
+      {  for (Object[] row : petRepository.findPedigreeLinks(petIds, 2 * generations))
+         {  parents.put(((Number) row[0]).longValue(), new Parents(toLong(row[1]), toLong(row[2])));
+         }
+      }
+      return new Pedigree(parents, Set.copyOf(petIds), loadedAt);
+   }
+
+
+   /**
+    * Coefficient of inbreeding of the offspring of two pets, from 0 to 1.
+    *
+    * @throws IllegalArgumentException the pedigree wasn't loaded for one of the pets (among others):
+    *                                  their ancestors may be cut short, see class comment
+    */
+   public double coefficientOfInbreeding(Pedigree pedigree, long motherId, long fatherId)
+   {
+      pedigree.checkLoadedFor(motherId);
+      pedigree.checkLoadedFor(fatherId);
+      if (cache.size() > maxCacheEntries)
+      {  log.debug("Kinship cache over {} entries, cleared", maxCacheEntries);
+         cache.clear();
+      }
+      return kinship(pedigree, motherId, fatherId, 2 * generations);
+   }
+
+
+   /**
+    * Inbreeding risk of the offspring of two pets, on the same 0 to 100 scale as the overlap score:
+    * F = 0.25 (full siblings, or parent and child) and above scores 100. When no inbreeding is found
+    * but one of the parents has no known ancestry, the risk is unknown: 50.
+    */
+   public int riskScore(Pedigree pedigree, long motherId, long fatherId)
+   {
+      double f = coefficientOfInbreeding(pedigree, motherId, fatherId);
+      if (f == 0d && (!pedigree.hasKnownParent(motherId) || !pedigree.hasKnownParent(fatherId)))
+      {  return 50; // Unknown ancestry: medium default risk
+      }
+      return (int) Math.round(Math.min(100d, f * 400d));
+   }
+
+
+   /**
+    * Same as {@link #riskScore(Pedigree, long, long)}, loading the pedigree of just this pair.
+    */
+   public int riskScore(long motherId, long fatherId)
+   {  return riskScore(loadPedigree(List.of(motherId, fatherId)), motherId, fatherId);
+   }
+
+
+   /**
+    * Evicts the cached kinships of a pet and of all its descendants, e.g. because its ancestry changed.
+    */
+   public void evictWithDescendants(Long petId)
+   {
+      Set<Long> ids = new HashSet<>();
+      ids.add(petId);
+      for (Object[] row : petRepository.findDescendantRows(petId, PetAncestryService.MAX_PEDIGREE_DEPTH))
+      {  ids.add(((Number) row[0]).longValue());
+      }
+      evict(ids);
+   }
+
+   /**
+    * Evicts all cached kinships, e.g. because pets were deleted: their descendants' kinships
+    * change, and finding them all would cost more than recomputing what is needed again.
+    */
+   public void evictAll()
+   {  epoch.incrementAndGet();
+      cache.clear();
+   }
+
+   /**
+    * Evicts the cached kinships involving any of the given pets.
+    */
+   public void evict(Collection<Long> petIds)
+   {
+      epoch.incrementAndGet();   // first: computations putting values from now on will take them back
+      if (cache.isEmpty()) return;
+      Set<Long> ids = petIds instanceof Set<Long> set ? set : new HashSet<>(petIds);
+      cache.keySet().removeIf(k -> ids.contains(k.low()) || ids.contains(k.high()));
+   }
+
+
+   /**
+    * Bounded, memoised kinship recursion. See class comment.
+    *
+    * @param depth remaining generation steps
+    */
+   private double kinship(Pedigree pedigree, long a, long b, int depth)
+   {
+      if (depth <= 0)
+      {  return a == b ? 0.5d : 0d;
+      }
+
+      KinshipKey key = KinshipKey.of(a, b, depth);
+      Double cached = cache.get(key);   // no computeIfAbsent: the computation is recursive
+      if (cached != null)
+      {  return cached;
+      }
+
+      double value;
+      if (a == b)
+      {  Parents p = pedigree.parentsOf(a);
+         double parentsKinship = (p != null && p.motherId() != null && p.fatherId() != null)
+                                 ? kinship(pedigree, p.motherId(), p.fatherId(), depth - 1)
+                                 : 0d;
+         value = 0.5d * (1d + parentsKinship);
+      }
+      else
+      {  boolean expandA = expandFirst(pedigree, a, b, depth);
+         long younger = expandA ? a : b;
+         long other   = expandA ? b : a;
+         Parents p = pedigree.parentsOf(younger);
+         double sum = 0d;
+         if (p != null && p.motherId() != null) sum += kinship(pedigree, p.motherId(), other, depth - 1);
+         if (p != null && p.fatherId() != null) sum += kinship(pedigree, p.fatherId(), other, depth - 1);
+         value = 0.5d * sum;
+      }
+
+      cache.put(key, value);
+      if (epoch.get() != pedigree.epoch)
+      {  cache.remove(key, value);   // evicted meanwhile: may have been computed from a stale pedigree
+      }
+      return value;
+   }
+
+
+   /**
+    * Whether to expand {@code a} rather than {@code b}: the one with more generations of known ancestry,
+    * up to {@code depth}, which is never an ancestor of the other one (see class comment). Below
+    * {@code depth}, equal generations mean that neither is; both at {@code depth}, one still may be.
+    */
+   private static boolean expandFirst(Pedigree pedigree, long a, long b, int depth)
+   {
+      int generationA = pedigree.generationOf(a, depth);
+      int generationB = pedigree.generationOf(b, depth);
+      if (generationA != generationB) return generationA > generationB;
+      if (generationA == depth)
+      {  if (pedigree.isAncestor(a, b, depth)) return false;
+         if (pedigree.isAncestor(b, a, depth)) return true;
+      }
+      return a > b;   // neither an ancestor of the other: both orders give the same value
+   }
+
+
+   private static Long toLong(Object value)
+   {  return value != null ? ((Number) value).longValue() : null;
+   }
+
+}
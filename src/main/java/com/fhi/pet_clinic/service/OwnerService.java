@@ -1,14 +1,32 @@
 package com.fhi.pet_clinic.service;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.query.TypedParameterValue;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.fhi.pet_clinic.dto.BulkDeleteResult;
+import com.fhi.pet_clinic.dto.MultiGetResult;
+import com.fhi.pet_clinic.dto.OwnerDto;
+import com.fhi.pet_clinic.dto.PetDto;
 import com.fhi.pet_clinic.model.Owner;
 import com.fhi.pet_clinic.model.Pet;
 import com.fhi.pet_clinic.repo.OwnerRepository;
 import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.repo.VersionedUpdateRepository;
+import com.fhi.pet_clinic.service.exception.StaleVersionException;
 
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 
@@ -18,6 +36,13 @@ public class OwnerService {
 
     private final OwnerRepository ownerRepository;
     private final PetRepository petRepository;
+    private final VersionedUpdateRepository versionedUpdateRepository;
+    private final PetAncestryService petAncestryService;
+    private final KinshipService kinshipService;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${pagination.max-page-size:500}")
+    private int maxPageSize;   // <= not final => ignored by @RequiredArgsConstructor
 
 
     public Owner getOwnerById(Long id) {
@@ -25,6 +50,79 @@ public class OwnerService {
                 .orElseThrow(() -> new EntityNotFoundException("Owner not found with id: " + id));
     }
 
+    /**
+     * Read path: the owner and its pets as DTOs, projected in two queries (no entity hydrated).
+     */
+    public OwnerDto getOwnerDtoById(Long id) {
+        OwnerDto owner = ownerRepository.findDtoById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Owner not found with id: " + id));
+        owner.setPets(petRepository.findDtosByOwnerId(id));
+        return owner;
+    }
+
+    /**
+     * Revision of an owner's representation ({@link #getOwnerDtoById}), for conditional GETs, cheaper
+     * to get than the representation itself: the owner comes from the second-level cache, its pets'
+     * ids and versions from one narrow query. Empty if there's no such owner.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Revision> getOwnerRevision(Long id) {
+        return ownerRepository.findById(id).map(owner -> {
+            long fingerprint = Revision.NO_PETS;
+            for (Object[] pet : petRepository.findVersionsByOwnerId(id)) {
+                fingerprint = Revision.addPet(fingerprint, (Long) pet[0], (Long) pet[1]);
+            }
+            return new Revision(owner.getVersion(), fingerprint);
+        });
+    }
+
+    /**
+     * The owner's version, and a fingerprint of its pets' ids and versions (by ascending id): changes
+     * whenever the owner, any of its pets, or the set of its pets does.
+     */
+    public record Revision(long version, long petsFingerprint) {
+
+        static final long NO_PETS = 1;
+
+        public static Revision of(OwnerDto owner) {
+            long fingerprint = NO_PETS;
+            for (PetDto pet : owner.getPets()) {
+                fingerprint = addPet(fingerprint, pet.getId(), pet.getVersion());
+            }
+            return new Revision(owner.getVersion(), fingerprint);
+        }
+
+        static long addPet(long fingerprint, long petId, long petVersion) {
+            // Multiply-xorshift mixing (as in SplittableRandom): each step depends on the order and
+            // on every bit of the previous ones
+            fingerprint = (fingerprint ^ petId)      * 0x9E3779B97F4A7C15L;
+            fingerprint = (fingerprint ^ petVersion) * 0xBF58476D1CE4E5B9L;
+            return fingerprint ^ (fingerprint >>> 31);
+        }
+    }
+
+    /**
+     * Read path, by batch: the given owners with their pets, as by {@link #getOwnerDtoById}, in two
+     * queries whatever the number of ids (owners, then all their pets). In the order of {@code ids}
+     * (duplicates dropped), with the ids that matched no owner.
+     *
+     * @throws IllegalArgumentException more ids than a page may hold (pagination.max-page-size)
+     */
+    public MultiGetResult<OwnerDto> getOwnerDtosByIds(List<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > maxPageSize) {
+            throw new IllegalArgumentException("At most " + maxPageSize + " ids per request");
+        }
+        List<OwnerDto> owners = distinctIds.isEmpty() ? List.of() : ownerRepository.findDtosByIdIn(distinctIds);
+        if (!owners.isEmpty()) {
+            Map<Long, List<PetDto>> petsByOwner = petRepository.findDtosByOwnerIdIn(owners.stream().map(OwnerDto::getId).toList())
+                    .stream()
+                    .collect(Collectors.groupingBy(PetDto::getOwnerId));
+            owners.forEach(owner -> owner.setPets(petsByOwner.getOrDefault(owner.getId(), List.of())));
+        }
+        return MultiGetResult.inRequestOrder(distinctIds, owners, OwnerDto::getId);
+    }
+
     public Owner createOwner(Owner ownerDto) 
     {
         Owner owner = new Owner();
@@ -32,37 +130,108 @@ public class OwnerService {
         return ownerRepository.save(owner);
     }
 
+    /**
+     * Full update (PUT). For changes to a few fields, prefer {@link #patchOwner}: one statement, no read.
+     */
+    @Transactional
     public Owner updateOwner(Long id, Owner ownerDto) 
     {
         Owner owner = ownerRepository.findById(id)
                      .orElseThrow(() -> new EntityNotFoundException("Owner not found with id: " + id));
         
         owner.setName(ownerDto.getName());
-        return ownerRepository.save(owner);
+        return owner;   // flushed on commit, with a version check
+    }
+
+    /**
+     * Applies field-level changes (JSON Merge Patch) to an owner in a single version-checked UPDATE,
+     * without reading it first. Patchable: name. See PetService.patchPet for the version rules.
+     *
+     * @return the new version, when the expected one was given
+     * @throws EntityNotFoundException  unknown owner
+     * @throws StaleVersionException    the owner is no longer at the expected version
+     * @throws IllegalArgumentException unknown field, or invalid value
+     */
+    @Transactional
+    public Optional<Long> patchOwner(long id, Long ifMatchVersion, Map<String, Object> changes)
+    {
+        Map<String, TypedParameterValue<?>> columns = new LinkedHashMap<>();
+        Long bodyVersion = null;
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            Object value = change.getValue();
+            switch (change.getKey()) {
+                case "version" -> {
+                    if (value != null && !(value instanceof Number)) throw new IllegalArgumentException("version must be a number");
+                    bodyVersion = value != null ? ((Number) value).longValue() : null;
+                }
+                case "name" -> {
+                    if (value != null && !(value instanceof String)) throw new IllegalArgumentException("name must be a string");
+                    columns.put("name", new TypedParameterValue<>(StandardBasicTypes.STRING, (String) value));
+                }
+                default -> throw new IllegalArgumentException("Not a patchable field of an owner: " + change.getKey());
+            }
+        }
+
+        boolean precondition = ifMatchVersion != null;
+        Long expectedVersion = precondition ? ifMatchVersion : bodyVersion;
+
+        if (versionedUpdateRepository.update(Owner.class, "owner", id, expectedVersion, columns)) {
+            return Optional.ofNullable(expectedVersion).map(v -> v + 1);
+        }
+        long currentVersion = versionedUpdateRepository.findVersion("owner", id)
+                .orElseThrow(() -> new EntityNotFoundException("Owner not found with id: " + id));
+        throw new StaleVersionException("Owner", id, expectedVersion, currentVersion, precondition);
     }
 
 
+    /**
+     * Deletes an owner and its pets with one statement (see {@link #deleteOwners}).
+     */
+    @Transactional
     public void deleteOwner(Long id) 
     {
-        if (!ownerRepository.existsById(id)) {
+        if (deleteOwners(List.of(id)).getDeleted() == 0) {
             throw new EntityNotFoundException("Owner not found with id: " + id);
         }
+    }
 
-        ownerRepository.deleteById(id);
-
-
+    /**
+     * Deletes owners by id, with their pets, without loading any of them: one statement per
+     * {@value PetService#BULK_DELETE_CHUNK} owners, the database deleting their pets (ON DELETE CASCADE)
+     * and clearing the parent links to those pets (ON DELETE SET NULL). The pets' closure rows go first,
+     * with their descendants' (rebuilt afterwards, see PetAncestryService.forgetAncestry), and their
+     * children's versions are incremented (see PetRepository.incrementVersionOfChildren).
+     *
+     * <p>Hibernate can't see the cascaded deletes: the pets' second-level cache region is evicted here,
+     * as are the cached kinships (see PetService.deletePets).</p>
+     */
+    @Transactional
+    public BulkDeleteResult deleteOwners(Collection<Long> ids)
+    {
+        List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+        int deleted = 0;
+        for (int from = 0; from < distinctIds.size(); from += PetService.BULK_DELETE_CHUNK) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + PetService.BULK_DELETE_CHUNK, distinctIds.size()));
+            List<Long> descendantIds = petAncestryService.forgetAncestryOfOwners(chunk);
+            petRepository.incrementVersionOfChildrenOfOwners(chunk);
+            deleted += ownerRepository.deleteByIds(chunk);
+            petAncestryService.rebuildAncestry(descendantIds);
+        }
+        if (deleted > 0) {
+            entityManagerFactory.getCache().evict(Pet.class);
+            kinshipService.evictAll();
+        }
+        return new BulkDeleteResult(distinctIds.size(), deleted);
     }
 
 
-    public List<Pet> getPetsForOwner(Long ownerId) {
+    public List<PetDto> getPetsForOwner(Long ownerId) {
         // We look up the owner first to ensure they exist
         if (!ownerRepository.existsById(ownerId)) {
             throw new EntityNotFoundException("Owner not found with id: " + ownerId);
         }
         
-        // Assuming your PetRepository has a findByOwnerId method
-        return petRepository.findByOwnerId(ownerId).stream()
-                .toList();
+        return petRepository.findDtosByOwnerId(ownerId);
     }
 
 
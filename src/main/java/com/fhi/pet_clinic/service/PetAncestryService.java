@@ -0,0 +1,366 @@
+package com.fhi.pet_clinic.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fhi.pet_clinic.dto.PedigreeEntry;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.PetAncestor;
+import com.fhi.pet_clinic.repo.PetAncestorRepository;
+import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.utils.SortedLongSets;
+
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Maintains and reads the pedigree closure table (see {@link PetAncestor}).
+ *
+ * <p>Ancestry used to be computed by recursively walking {@link Pet#getMother()} /
+ * {@link Pet#getFather()}, i.e. one entity load per ancestor. Instead, each pet's closure
+ * is derived from its parents' closures when it is saved, and read back in one query.</p>
+ *
+ * <p>Ad-hoc pedigree queries (ancestors or descendants of any depth) are served by recursive
+ * CTEs in {@link PetRepository}, also in one round trip.</p>
+ */
+@Service
+@Slf4j
+public class PetAncestryService
+{
+   /**
+    * Upper bound on the number of generations a pedigree query may span, whatever the caller asks.
+    * Even deduplicated, a generation of a wide pedigree can hold thousands of rows: 16 covers any
+    * breeding question (kinship uses half of it, see KinshipService) without letting one request
+    * expand the whole table.
+    */
+   public static final int MAX_PEDIGREE_DEPTH = 16;
+
+   private final PetAncestorRepository petAncestorRepository;
+   private final PetRepository         petRepository;
+
+   /**
+    * Deepest generation recorded in the closure table. Bounds its size: a pet has at most
+    * 2 + 4 + ... + 2^maxDepth rows.
+    */
+   private final int maxDepth;
+
+
+   public PetAncestryService(PetAncestorRepository petAncestorRepository,
+                             PetRepository         petRepository,
+                             @Value("${pedigree.closure.max-depth:8}") int maxDepth)
+   {  this.petAncestorRepository = petAncestorRepository;
+      this.petRepository         = petRepository;
+      this.maxDepth              = maxDepth;
+   }
+
+
+   /**
+    * Records the ancestry of a freshly saved pet: its parents at depth 1, plus its parents'
+    * own ancestors one generation further up.
+    *
+    * @param pet a persisted pet (its id must be set)
+    */
+   @Transactional
+   public void recordAncestry(Pet pet)
+   {  recordAncestry(List.of(pet));
+   }
+
+
+   /**
+    * Records the ancestry of freshly saved pets, e.g. a litter.
+    *
+    * <p>Costs one JDBC batch for the parent rows and one {@code INSERT ... SELECT} for all
+    * inherited rows, whatever the number of pets and the depth of the pedigree.</p>
+    *
+    * @param pets persisted pets (their ids must be set)
+    */
+   @Transactional
+   public void recordAncestry(List<Pet> pets)
+   {
+      Map<Long, List<Long>> parentIdsByPet = new LinkedHashMap<>();
+      for (Pet pet : pets)
+      {  parentIdsByPet.put(pet.getId(), parentIdsOf(pet));
+      }
+      recordByGeneration(parentIdsByPet);
+   }
+
+   /**
+    * Records the closure rows of pets given their parent ids, parents before children: a pet inherits
+    * its parents' rows, which must be there first. A litter is a single generation.
+    */
+   private void recordByGeneration(Map<Long, List<Long>> parentIdsByPet)
+   {
+      Map<Long, List<Long>> pending = new LinkedHashMap<>(parentIdsByPet);
+      while (!pending.isEmpty())
+      {  Map<Long, List<Long>> generation = new LinkedHashMap<>();
+         pending.forEach((petId, parentIds) ->
+         {  if (parentIds.stream().noneMatch(pending::containsKey))
+            {  generation.put(petId, parentIds);
+            }
+         });
+         if (generation.isEmpty())
+         {  throw new IllegalStateException("Cycle in the parent links of pets " + pending.keySet());
+         }
+         record(generation);
+         pending.keySet().removeAll(generation.keySet());
+      }
+   }
+
+   /**
+    * Records the closure rows of pets none of which is the parent of another, given their parent ids.
+    */
+   private void record(Map<Long, List<Long>> parentIdsByPet)
+   {
+      List<PetAncestor> parents = new ArrayList<>(2 * parentIdsByPet.size());
+      List<Long>        petIds  = new ArrayList<>(parentIdsByPet.size());
+      parentIdsByPet.forEach((petId, parentIds) ->
+      {  if (!parentIds.isEmpty())
+         {  petIds.add(petId);
+            parentIds.forEach(parentId -> parents.add(new PetAncestor(petId, parentId, 1)));
+         }
+      });
+      if (petIds.isEmpty())
+      {  return;
+      }
+
+      // Parents without closure rows of their own (e.g. loaded by a script) would pass nothing on
+      // through the INSERT ... SELECT below, leaving these pets' closure partial: backfill them first
+      List<Long> unrecordedParents = petAncestorRepository.findIdsWithoutAncestry(
+                                        parents.stream().map(PetAncestor::getAncestorId).distinct().toList());
+      if (!unrecordedParents.isEmpty())
+      {  log.debug("Backfilling the ancestry of parents {}", unrecordedParents);
+         recordAncestry(petRepository.findAllById(unrecordedParents));
+      }
+
+      petAncestorRepository.saveAll(parents);
+      petAncestorRepository.flush(); // the INSERT ... SELECT below reads the parent rows
+
+      int inherited = petAncestorRepository.inheritAncestors(petIds, maxDepth);
+      log.debug("Recorded ancestry of {} pet(s): {} parent row(s), {} inherited ancestor row(s)",
+                petIds.size(), parents.size(), inherited);
+   }
+
+
+   /**
+    * Removes the closure rows of pets about to be deleted (see {@link PetAncestorRepository#deleteByPetIds}),
+    * and all those of their descendants.
+    *
+    * <p>The descendants' rows hold the deleted pets' ancestors, reached through them: once the parent
+    * links to the deleted pets are cleared, some are no longer ancestors (unless also reached through
+    * the other parent, which rows don't tell). All their rows go, to be rebuilt from their remaining
+    * parents by {@link #rebuildAncestry} once the pets are deleted.</p>
+    *
+    * @return the descendants (the deleted pets excluded), for {@link #rebuildAncestry}
+    */
+   @Transactional
+   public List<Long> forgetAncestry(Collection<Long> petIds)
+   {
+      List<Long> descendantIds = petAncestorRepository.findDescendantIds(petIds);
+      petAncestorRepository.deleteByPetIds(petIds);
+      forget(descendantIds);
+      return descendantIds;
+   }
+
+   /**
+    * Same as {@link #forgetAncestry(Collection)}, for all the pets of owners about to be deleted.
+    */
+   @Transactional
+   public List<Long> forgetAncestryOfOwners(Collection<Long> ownerIds)
+   {
+      List<Long> descendantIds = petAncestorRepository.findDescendantIdsOfOwners(ownerIds);
+      petAncestorRepository.deleteByOwnerIds(ownerIds);
+      forget(descendantIds);
+      return descendantIds;
+   }
+
+   private void forget(List<Long> descendantIds)
+   {
+      for (int from = 0; from < descendantIds.size(); from += PetService.BULK_DELETE_CHUNK)
+      {  petAncestorRepository.deleteAncestryOf(descendantIds.subList(from, Math.min(from + PetService.BULK_DELETE_CHUNK, descendantIds.size())));
+      }
+   }
+
+   /**
+    * Records again the closure rows of pets whose rows were removed by {@link #forgetAncestry}, from
+    * their parent links as they now are in the database (those to deleted pets cleared). Parents first,
+    * one generation at a time.
+    *
+    * @param petIds pets that no longer exist are ignored
+    */
+   @Transactional
+   public void rebuildAncestry(Collection<Long> petIds)
+   {
+      if (petIds.isEmpty())
+      {  return;
+      }
+      List<Long>            ids            = List.copyOf(petIds);
+      Map<Long, List<Long>> parentIdsByPet = new LinkedHashMap<>();
+      for (int from = 0; from < ids.size(); from += PetService.BULK_DELETE_CHUNK)
+      {  List<Long> chunk = ids.subList(from, Math.min(from + PetService.BULK_DELETE_CHUNK, ids.size()));
+         for (Object[] row : petRepository.findParentIds(chunk))
+         {  List<Long> parentIds = new ArrayList<>(2);
+            if (row[1] != null) parentIds.add((Long) row[1]);
+            if (row[2] != null && !row[2].equals(row[1])) parentIds.add((Long) row[2]);
+            parentIdsByPet.put((Long) row[0], parentIds);
+         }
+      }
+      recordByGeneration(parentIdsByPet);
+      log.debug("Rebuilt the ancestry of {} descendant(s) of deleted pets", parentIdsByPet.size());
+   }
+
+
+   /**
+    * Returns the ids of the ancestors of each given pet, up to the given number of generations,
+    * as sorted {@code long[]} sets (see {@link SortedLongSets}).
+    *
+    * <p>All pets are served by a single query on the closure table. Pets whose closure rows are
+    * missing or partial (they have a parent that isn't among them: inserted without going through
+    * {@link PetService#savePet}, or recorded before the backfill of their parents) are then resolved
+    * together by one recursive CTE query, as are all pets when {@code depth} exceeds what the
+    * closure table records.</p>
+    *
+    * @param pets  pets whose ancestry is requested
+    * @param depth how many generations to go up (1 = parents only)
+    * @return ancestor ids keyed by pet id; never null, every requested pet has an entry
+    */
+   public Map<Long, long[]> findAncestorIds(List<Pet> pets, int depth)
+   {
+      Map<Long, List<Long>> parentIdsByPet = new LinkedHashMap<>();
+      for (Pet pet : pets)
+      {  parentIdsByPet.put(pet.getId(), parentIdsOf(pet));
+      }
+      return findAncestorIds(parentIdsByPet, depth);
+   }
+
+   /**
+    * Same as {@link #findAncestorIds(List, int)}, for pets known by their ids and parent ids only
+    * (e.g. a projection), so that no entity needs to be loaded.
+    *
+    * @param parentIdsByPet ids of the mother and father (when known) of each pet whose ancestry is requested
+    */
+   public Map<Long, long[]> findAncestorIds(Map<Long, List<Long>> parentIdsByPet, int depth)
+   {
+      Map<Long, long[]> ancestry = new HashMap<>();
+      if (!parentIdsByPet.isEmpty() && depth > 0)
+      {
+         if (depth <= maxDepth) // otherwise the closure table is truncated, go straight to the CTE
+         {  collect(petAncestorRepository.findAncestorIdPairs(parentIdsByPet.keySet(), depth), ancestry);
+         }
+
+         List<Long> unindexed = parentIdsByPet.entrySet().stream()
+                                              .filter(pet -> !containsAll(ancestry.get(pet.getKey()), pet.getValue()))
+                                              .map(Map.Entry::getKey)
+                                              .toList();
+         if (!unindexed.isEmpty())
+         {  log.debug("Pets {} have missing or partial closure rows, ancestry resolved by recursive query", unindexed);
+            unindexed.forEach(ancestry::remove);
+            collect(petRepository.findAncestryRows(unindexed, depth).stream()
+                                 .filter(row -> ((Number) row[4]).intValue() > 0)   // not the pet itself
+                                 .toList(),
+                    ancestry);
+         }
+      }
+
+      for (Long petId : parentIdsByPet.keySet())
+      {  ancestry.putIfAbsent(petId, SortedLongSets.EMPTY);
+      }
+      return ancestry;
+   }
+
+   /**
+    * Adds {@code [petId, ancestorId, ...]} rows to the ancestry of their pets.
+    */
+   private static void collect(List<Object[]> rows, Map<Long, long[]> ancestry)
+   {
+      Map<Long, SortedLongSets.Builder> builders = new HashMap<>();
+      for (Object[] row : rows)
+      {  builders.computeIfAbsent(((Number) row[0]).longValue(), id -> new SortedLongSets.Builder())
+                 .add(((Number) row[1]).longValue());
+      }
+      builders.forEach((petId, builder) -> ancestry.put(petId, builder.build()));
+   }
+
+   private static boolean containsAll(long[] ancestors, List<Long> parentIds)
+   {
+      if (parentIds.isEmpty())
+      {  return true;
+      }
+      if (ancestors == null)
+      {  return false;
+      }
+      for (Long parentId : parentIds)
+      {  if (Arrays.binarySearch(ancestors, parentId) < 0)
+         {  return false;
+         }
+      }
+      return true;
+   }
+
+
+   /**
+    * Returns the ancestors of a pet down to the given number of generations, closest first,
+    * in one round trip. The pet itself comes first, at depth 0.
+    *
+    * @return empty if there is no pet with this id
+    */
+   public Optional<List<PedigreeEntry>> findAncestors(Long petId, int generations)
+   {
+      List<PedigreeEntry> entries = petRepository.findAncestryRows(List.of(petId), clampDepth(generations))
+                                                 .stream()
+                                                 .map(row -> toEntry(row[1], row[2], row[3], row[4]))
+                                                 .toList();
+      return entries.isEmpty() ? Optional.empty() : Optional.of(entries);
+   }
+
+
+   /**
+    * Returns the descendants of a pet down to the given number of generations, closest first,
+    * in one round trip. The pet itself comes first, at depth 0.
+    *
+    * @return empty if there is no pet with this id
+    */
+   public Optional<List<PedigreeEntry>> findDescendants(Long petId, int generations)
+   {
+      List<PedigreeEntry> entries = petRepository.findDescendantRows(petId, clampDepth(generations))
+                                                 .stream()
+                                                 .map(row -> toEntry(row[0], row[1], row[2], row[3]))
+                                                 .toList();
+      return entries.isEmpty() ? Optional.empty() : Optional.of(entries);
+   }
+
+
+   private static int clampDepth(int generations)
+   {  return Math.max(0, Math.min(MAX_PEDIGREE_DEPTH, generations));
+   }
+
+   private static PedigreeEntry toEntry(Object id, Object name, Object sex, Object depth)
+   {  return new PedigreeEntry(((Number) id).longValue(),
+                               (String) name,
+                               sex != null ? sex.toString() : null,
+                               ((Number) depth).intValue());
+   }
+
+
+   private static List<Long> parentIdsOf(Pet pet)
+   {
+      List<Long> ids = new ArrayList<>(2);
+      if (pet.getMother() != null && pet.getMother().getId() != null)
+      {  ids.add(pet.getMother().getId());
+      }
+      if (pet.getFather() != null && pet.getFather().getId() != null
+                                  && !ids.contains(pet.getFather().getId()))
+      {  ids.add(pet.getFather().getId());
+      }
+      return ids;
+   }
+}
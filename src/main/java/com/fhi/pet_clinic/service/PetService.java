@@ -1,15 +1,35 @@
 package com.fhi.pet_clinic.service;
 
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 import java.util.Set;
-
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collectors;
+
+import org.hibernate.query.TypedParameterValue;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fhi.pet_clinic.dto.BulkDeleteResult;
+import com.fhi.pet_clinic.dto.KeysetPage;
+import com.fhi.pet_clinic.dto.MatingPair;
+import com.fhi.pet_clinic.dto.MatingResult;
+import com.fhi.pet_clinic.dto.MultiGetResult;
+import com.fhi.pet_clinic.dto.PetDto;
 import com.fhi.pet_clinic.model.FertilityAgeWindow;
 import com.fhi.pet_clinic.model.Owner;
 import com.fhi.pet_clinic.model.Pet;
@@ -17,9 +37,13 @@ import com.fhi.pet_clinic.model.Sex;
 import com.fhi.pet_clinic.model.Species;
 import com.fhi.pet_clinic.repo.OwnerRepository;
 import com.fhi.pet_clinic.repo.PetRepository;
-import com.fhi.pet_clinic.repo.SpeciesRepository;
+import com.fhi.pet_clinic.repo.VersionedUpdateRepository;
+import com.fhi.pet_clinic.service.exception.StaleVersionException;
 import com.fhi.pet_clinic.service.exception.pet.MatingException;
+import com.fhi.pet_clinic.service.random.RandomSource;
+import com.fhi.pet_clinic.utils.SortedLongSets;
 
+import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,13 +57,58 @@ public class PetService
 
    private final PetRepository     petRepository;
    private final OwnerRepository   ownerRepository;
-   private final SpeciesRepository speciesRepository;
-   
-   private final Random random = new Random(); // <= initialized => ignored by @RequiredArgsConstructor 
+   private final SpeciesRegistry   speciesRegistry;
+   private final VersionedUpdateRepository versionedUpdateRepository;
+   private final PetAncestryService petAncestryService;
+   private final KinshipService     kinshipService;
+   private final RandomSource       randomSource;
+
+   @Value("${pedigree.inbreeding.strategy:OVERLAP}")
+   private InbreedingRiskStrategy inbreedingRiskStrategy;  // <= not final => ignored by @RequiredArgsConstructor
+
+   @Value("${pagination.default-page-size:50}")
+   private int defaultPageSize;
+
+   @Value("${pagination.max-page-size:500}")
+   private int maxPageSize;
+
+   @Value("${pedigree.mating.max-batch-size:1000}")
+   private int maxMatingBatchSize;
+
+
+   /**
+    * Lists pets by ascending id, one keyset page at a time (see {@link KeysetPage}),
+    * optionally filtered by species and/or owner.
+    *
+    * @param afterId  {@code nextAfterId} of the previous page, {@code null} for the first one
+    * @param limit    page size, {@code null} for the default; capped to the configured maximum
+    */
+   @Transactional(readOnly = true)
+   public KeysetPage<PetDto> findPets(Long afterId, Integer limit, String speciesName, Long ownerId)
+   {
+      int pageSize = limit == null ? defaultPageSize : Math.max(1, Math.min(limit, maxPageSize));
+      Long after   = afterId != null ? afterId : Long.MIN_VALUE;   // pooled sequences hand out ids <= 0 from their first block
+
+      Long speciesId = null;
+      if (speciesName != null)
+      {  Optional<Species> species = speciesRegistry.findByName(speciesName);
+         if (species.isEmpty()) 
+         {  return KeysetPage.empty();
+         }
+         speciesId = species.get().getId();
+      }
 
+      Limit fetch = Limit.of(pageSize + 1);   // one more than asked, to know whether there is a next page
+      List<PetDto> pets = speciesId != null && ownerId != null ? petRepository.findDtosBySpeciesAndOwnerAfter(speciesId, ownerId, after, fetch)
+                        : speciesId != null                    ? petRepository.findDtosBySpeciesAfter(speciesId, after, fetch)
+                        : ownerId != null                      ? petRepository.findDtosByOwnerAfter(ownerId, after, fetch)
+                        :                                        petRepository.findDtosAfter(after, fetch);
 
-   public List<Pet> findAllPets() {
-      return petRepository.findAll();
+      if (pets.size() <= pageSize)
+      {  return new KeysetPage<>(pets, null);
+      }
+      List<PetDto> page = pets.subList(0, pageSize);
+      return new KeysetPage<>(page, page.get(pageSize - 1).getId());
    }
 
    @SuppressWarnings("null")  // we accept the risk of an IllegalArgument being thrown if id is null
@@ -47,8 +116,87 @@ public class PetService
       return petRepository.findById(id);
    }
 
+   /**
+    * Loads a pet with the given fetch plan (see Pet's entity graphs): 
+    * "summary", "withOwner" or "withPedigree" (ancestors up to {@code depth} generations).
+    *
+    * @throws IllegalArgumentException on unknown fetch plan
+    */
+   @Transactional(readOnly = true)
+   public Optional<Pet> findPetById(Long id, String fetchPlan, int depth) 
+   {
+      return switch (fetchPlan) 
+      {  case "summary"      -> petRepository.findSummaryById(id);
+         case "withOwner"    -> petRepository.findWithOwnerById(id);
+         case "withPedigree" -> depth <= 1 ? petRepository.findWithPedigreeById(id)
+                                           : petRepository.findWithPedigreeById(id, depth);
+         default             -> throw new IllegalArgumentException("Unknown fetch plan: " + fetchPlan);
+      };
+   }
+
+   /**
+    * Read path: the pet's DTO, projected in a single query (no entity hydrated).
+    */
+   public Optional<PetDto> findPetDtoById(Long id) {
+      return petRepository.findDtoById(id);
+   }
+
+   /**
+    * Current version of a pet, for conditional GETs: no query when the pet is in the second-level
+    * cache (as polled pets are), unlike {@link #findPetDtoById}.
+    */
+   @Transactional(readOnly = true)
+   public Optional<Long> findPetVersion(Long id) {
+      return petRepository.findById(id).map(Pet::getVersion);
+   }
+
+
+   /**
+    * Read path, by batch: the DTOs of the given pets in one query, in the order of {@code ids}
+    * (duplicates dropped), and the ids that matched no pet.
+    *
+    * @throws IllegalArgumentException more ids than a page may hold (pagination.max-page-size)
+    */
+   public MultiGetResult<PetDto> findPetDtosByIds(List<Long> ids)
+   {
+      Set<Long> distinctIds = new LinkedHashSet<>(ids);
+      if (distinctIds.size() > maxPageSize)
+      {  throw new IllegalArgumentException("At most " + maxPageSize + " ids per request");
+      }
+      List<PetDto> found = distinctIds.isEmpty() ? List.of() : petRepository.findDtosByIdIn(distinctIds);
+      return MultiGetResult.inRequestOrder(distinctIds, found, PetDto::getId);
+   }
+
+
+   /**
+    * Finds the candidate mates of a pet: fertile, non-sterile pets of the same species and opposite sex,
+    * one page at a time. Filtering happens in the database (see {@link PetRepository#findEligibleMates}),
+    * instead of loading every pet of the species to call {@link Pet#isFertile()}.
+    *
+    * @return empty if the pet doesn't exist
+    */
+   @Transactional(readOnly = true)
+   public Optional<Page<PetDto>> findEligibleMates(Long petId, Pageable pageable)
+   {
+      return petRepository.findSummaryById(petId).map(pet -> 
+      {  Species species = pet.getSpecies();
+         FertilityAgeWindow window = species.getFertilityAgeWindow();
+         LocalDate today = LocalDate.now();
+         boolean unknownAgeFertile = BreedingRules.isFertile(species.getExpectedLifespan() / 2,   // see Pet.getAgeInYears()
+                                                             window.getFrom(), window.getTo());
+         return petRepository.findEligibleMates(pet.getId(), species.getId(),
+                                                pet.isMale() ? Sex.FEMALE : Sex.MALE,
+                                                window.fertileIfBornAfter(today), 
+                                                window.fertileIfBornOnOrBefore(today),
+                                                unknownAgeFertile, pageable);
+      });
+   }
+
+   @Transactional
    public Pet savePet(Pet pet) 
    {
+      boolean isNew = pet.getId() == null;
+
       // 1. Resolve the Owner from the DB so it is no longer 'transient'
       if (pet.getOwner() != null && pet.getOwner().getId() != null) 
       {  log.debug("Setting owner");
@@ -61,48 +209,311 @@ public class PetService
       // 2. Resolve the Species (as we did previously)
       if (pet.getSpecies() != null && pet.getSpecies().getName() != null) 
       {  log.debug("Setting species");
-         Species persistentSpecies = speciesRepository.findByName(pet.getSpecies().getName())
+         Species persistentSpecies = speciesRegistry.findByName(pet.getSpecies().getName())   // no query
                .orElseThrow(() -> new RuntimeException("Species not found: " + pet.getSpecies().getName()));
          pet.setSpecies(persistentSpecies);
       }
 
       var ret  = petRepository.save(pet);
       log.debug("Saved pet = {}", toJson(ret));
+
+      // 3. Keep the pedigree closure table up to date (parents can only be set at creation)
+      if (isNew)
+      {  petAncestryService.recordAncestry(ret);
+      }
+      else // a new pet is nobody's ancestor yet, only a re-saved one can make kinships stale
+      {  kinshipService.evictWithDescendants(ret.getId());
+      }
       return ret;
    }
 
 
+   /**
+    * Full update (PUT). For changes to a few fields, prefer {@link #patchPet}: one statement, no read.
+    */
+   @Transactional
    public Pet updatePet(Long id, Pet petDetails) {
       return petRepository.findById(id)
               .map(pet -> {
                    pet.setName(petDetails.getName());
-                   pet.setSpecies(petDetails.getSpecies());
+                   if (petDetails.getSpecies() != null) {
+                      // The body only carries the species' name (or id): resolve it, don't assign it as is
+                      pet.setSpecies(speciesRegistry.findByName(petDetails.getSpecies().getName())
+                                                    .orElseThrow(() -> new IllegalArgumentException("Unknown species: " + petDetails.getSpecies().getName())));
+                   }
                    pet.setBirthDate(petDetails.getBirthDate());
                    // Update other attributes here
-                   return petRepository.save(pet);
+                   return pet;   // flushed on commit, with a version check
               }).orElseThrow(() -> new IllegalArgumentException("Pet not found"));
    }
 
+
+   /**
+    * Applies field-level changes to a pet in a single {@code UPDATE ... WHERE id = ? AND version = ?}
+    * (see {@link VersionedUpdateRepository}): the pet is not read first.
+    *
+    * <p>{@code changes} follows JSON Merge Patch (RFC 7386): absent fields are left as they are,
+    * fields set to null are cleared. Patchable: name, birthDate, coatColor, eyeColor, ownerId and
+    * species (by name). Sex and parents are not, as the pedigree closure and kinships depend on them.</p>
+    *
+    * <p>The expected version is {@code ifMatchVersion} if given (If-Match header), otherwise the
+    * {@code "version"} of the changes, if any; without either, the changes are applied regardless.</p>
+    *
+    * @return the new version, when the expected one was given
+    * @throws EntityNotFoundException  unknown pet
+    * @throws StaleVersionException    the pet is no longer at the expected version
+    * @throws IllegalArgumentException unknown field, or invalid value
+    */
+   @Transactional
+   public Optional<Long> patchPet(long id, Long ifMatchVersion, Map<String, Object> changes)
+   {
+      Map<String, TypedParameterValue<?>> columns = new LinkedHashMap<>();
+      for (Map.Entry<String, Object> change : changes.entrySet())
+      {  Object value = change.getValue();
+         switch (change.getKey())
+         {  case "version"   -> { }   // expected version, see below
+            case "name"      -> columns.put("name",       new TypedParameterValue<>(StandardBasicTypes.STRING, petName(value)));
+            case "birthDate" -> columns.put("birth_date", new TypedParameterValue<>(StandardBasicTypes.LOCAL_DATE, date("birthDate", value)));
+            case "coatColor" -> columns.put("coat_color", new TypedParameterValue<>(StandardBasicTypes.STRING, string("coatColor", value)));
+            case "eyeColor"  -> columns.put("eye_color",  new TypedParameterValue<>(StandardBasicTypes.STRING, string("eyeColor", value)));
+            case "ownerId"   -> columns.put("owner_id",   new TypedParameterValue<>(StandardBasicTypes.LONG, requiredLong("ownerId", value)));
+            case "species"   -> columns.put("species_id", new TypedParameterValue<>(StandardBasicTypes.LONG,
+                                                                                    speciesRegistry.findByName(string("species", value))
+                                                                                                   .orElseThrow(() -> new IllegalArgumentException("Unknown species: " + value))
+                                                                                                   .getId()));
+            default          -> throw new IllegalArgumentException("Not a patchable field of a pet: " + change.getKey());
+         }
+      }
+
+      boolean precondition = ifMatchVersion != null;
+      Long expectedVersion = precondition ? ifMatchVersion : optionalLong("version", changes.get("version"));
+
+      if (versionedUpdateRepository.update(Pet.class, "pet", id, expectedVersion, columns))
+      {  return Optional.ofNullable(expectedVersion).map(v -> v + 1);
+      }
+      // Not updated: find out why (cold path, hence the extra query)
+      long currentVersion = versionedUpdateRepository.findVersion("pet", id)
+                                                     .orElseThrow(() -> new EntityNotFoundException("Pet not found with id: " + id));
+      throw new StaleVersionException("Pet", id, expectedVersion, currentVersion, precondition);
+   }
+
+
+   private static String petName(Object value)
+   {  String name = string("name", value);
+      if (name == null || name.isBlank() || name.length() > 50)
+      {  throw new IllegalArgumentException("A pet's name must be 1 to 50 characters long");
+      }
+      return name;
+   }
+
+   private static String string(String field, Object value)
+   {  if (value != null && !(value instanceof String))
+      {  throw new IllegalArgumentException(field + " must be a string");
+      }
+      return (String) value;
+   }
+
+   private static LocalDate date(String field, Object value)
+   {  String date = string(field, value);
+      try
+      {  return date != null ? LocalDate.parse(date) : null;
+      }
+      catch (DateTimeParseException e)
+      {  throw new IllegalArgumentException(field + " must be a date (yyyy-MM-dd)", e);
+      }
+   }
+
+   private static Long optionalLong(String field, Object value)
+   {  if (value != null && !(value instanceof Number))
+      {  throw new IllegalArgumentException(field + " must be a number");
+      }
+      return value != null ? ((Number) value).longValue() : null;
+   }
+
+   private static Long requiredLong(String field, Object value)
+   {  Long number = optionalLong(field, value);
+      if (number == null)
+      {  throw new IllegalArgumentException(field + " cannot be null");
+      }
+      return number;
+   }
+
+   /**
+    * Deletes a pet with one statement (see {@link #deletePets}).
+    *
+    * @throws IllegalArgumentException unknown pet
+    */
+   @Transactional
    public void deletePet(Long id) {
-      if (!petRepository.existsById(id)) {
+      if (deletePets(List.of(id)).getDeleted() == 0) {
          throw new IllegalArgumentException("Pet not found");
       }
-      petRepository.deleteById(id);
    }
 
 
+   /**
+    * Deletes pets by id, {@value #BULK_DELETE_CHUNK} per statement, without loading them (nor
+    * checking that they exist first). Their closure rows go first, with their descendants'; their
+    * children's parent links are cleared by the database (see Pet.mother), their versions incremented
+    * beforehand. The descendants' closure rows are then rebuilt without them.
+    *
+    * <p>All cached kinships are evicted: those of the deleted pets' descendants have changed.</p>
+    */
+   @Transactional
+   public BulkDeleteResult deletePets(Collection<Long> ids)
+   {
+      List<Long> distinctIds = List.copyOf(new LinkedHashSet<>(ids));
+      int deleted = 0;
+      for (int from = 0; from < distinctIds.size(); from += BULK_DELETE_CHUNK)
+      {  List<Long> chunk = distinctIds.subList(from, Math.min(from + BULK_DELETE_CHUNK, distinctIds.size()));
+         List<Long> descendantIds = petAncestryService.forgetAncestry(chunk);
+         petRepository.incrementVersionOfChildren(chunk);
+         deleted += petRepository.deleteByIds(chunk);
+         petAncestryService.rebuildAncestry(descendantIds);
+      }
+      if (deleted > 0)
+      {  kinshipService.evictAll();
+      }
+      log.debug("Deleted {} of {} pet(s)", deleted, distinctIds.size());
+      return new BulkDeleteResult(distinctIds.size(), deleted);
+   }
+
+   /** Ids per DELETE statement: bounds the IN list (some databases cap the number of bind parameters). */
+   public static final int BULK_DELETE_CHUNK = 1000;
+
+
    /**
     * Attempts to mate two pets and returns the resulting offspring.
     * @throws MatingException if mating is not possible.
     */
    public List<Pet> mate(Long motherId, Long fatherId) 
+   {  return mate(motherId, fatherId, null);
+   }
+
+
+   /**
+    * Attempts to mate two pets and returns the resulting offspring.
+    * 
+    * @param seed if not null, the litter is drawn from a generator seeded with it, 
+    *             so the same seed on the same parents reproduces the same litter.
+    * @throws MatingException if mating is not possible.
+    */
+   public List<Pet> mate(Long motherId, Long fatherId, Long seed) 
    {
       log.debug("");
-      Pet mother = petRepository.findById(motherId)
+      Pet mother = petRepository.findSummaryById(motherId)
                                 .orElseThrow(() -> MatingException.parentNotFound(motherId, null));
-      Pet father = petRepository.findById(fatherId)
+      Pet father = petRepository.findSummaryById(fatherId)
                                 .orElseThrow(() -> MatingException.parentNotFound(fatherId, null));
-      return mate(mother, father);  // delegate to internal logic
+      return mate(mother, father, generatorFor(seed));  // delegate to internal logic
+   }
+
+
+   /**
+    * Mates a batch of pairs and returns one result per pair, in request order.
+    *
+    * <p>All referenced pets are fetched with a single {@code IN} query, and all their ancestries
+    * with a single query, so the database cost does not grow with the number of pairs.
+    * Validation and degeneracy scoring then run in parallel, on in-memory data only.</p>
+    *
+    * <p>A pair that cannot mate does not fail the batch: its result carries the
+    * {@link MatingException.Cause} code instead of offspring.</p>
+    *
+    * <p>A pair carrying a seed gets a reproducible litter, see {@link #mate(Long, Long, Long)}.</p>
+    *
+    * @throws IllegalArgumentException more pairs than {@code pedigree.mating.max-batch-size}
+    */
+   @Transactional(readOnly = true)
+   public List<MatingResult> mate(List<MatingPair> pairs) 
+   {
+      if (pairs.size() > maxMatingBatchSize)
+      {  throw new IllegalArgumentException("Too many pairs in a mating batch: " + pairs.size() + " > " + maxMatingBatchSize);
+      }
+      Set<Long> ids = new LinkedHashSet<>();
+      for (MatingPair pair : pairs) 
+      {  ids.add(pair.getMotherId());
+         ids.add(pair.getFatherId());
+      }
+      ids.remove(null);
+
+      // Species fetched with the pets: the parallel workers below must not trigger lazy loading,
+      // the persistence context is bound to this thread (and not thread-safe anyway)
+      Map<Long, Pet> pets = petRepository.findSummariesByIdIn(ids).stream()
+                                         .collect(Collectors.toMap(Pet::getId, Function.identity()));
+      ToIntBiFunction<Pet, Pet> inbreedingRisk = prefetchInbreedingRisk(List.copyOf(pets.values()));
+      log.debug("Batch mating: {} pair(s), {} distinct pet(s) prefetched", pairs.size(), pets.size());
+
+      return pairs.parallelStream()
+                  .map(pair -> mate(pair, pets, inbreedingRisk))
+                  .toList();
+   }
+
+
+   /**
+    * Same as {@link #mate(Long, Long, Long)}, and persists the litter.
+    */
+   @Transactional
+   public List<Pet> mateAndSave(Long motherId, Long fatherId, Long seed) 
+   {  return saveLitters(mate(motherId, fatherId, seed));
+   }
+
+
+   /**
+    * Same as {@link #mate(List)}, and persists all litters, in the same transaction.
+    */
+   @Transactional
+   public List<MatingResult> mateAndSave(List<MatingPair> pairs) 
+   {
+      List<MatingResult> results = mate(pairs);
+      saveLitters(results.stream()
+                         .filter(r -> r.getOffspring() != null)
+                         .flatMap(r -> r.getOffspring().stream())
+                         .toList());
+      return results;
+   }
+
+
+   /**
+    * Persists offspring, whatever the number of litters, in a handful of round trips:
+    * ids come by blocks from the pooled sequence, pets are inserted in JDBC batches
+    * ({@code hibernate.jdbc.batch_size}), and their ancestry is recorded in two statements.
+    */
+   private List<Pet> saveLitters(List<Pet> offspring) 
+   {
+      if (offspring.isEmpty()) 
+      {  return offspring;
+      }
+      for (Pet baby : offspring) 
+      {  baby.setOwner(baby.getMother().getOwner());  // a litter belongs to its mother's owner
+      }
+      List<Pet> saved = petRepository.saveAll(offspring);
+      petRepository.flush();
+      petAncestryService.recordAncestry(saved);
+      log.debug("Saved {} offspring", saved.size());
+      return saved;
+   }
+
+
+   private MatingResult mate(MatingPair pair, Map<Long, Pet> pets, ToIntBiFunction<Pet, Pet> inbreedingRisk) 
+   {
+      try 
+      {  Pet mother = Optional.ofNullable(pair.getMotherId()).map(pets::get)
+                              .orElseThrow(() -> MatingException.parentNotFound(pair.getMotherId(), null));
+         Pet father = Optional.ofNullable(pair.getFatherId()).map(pets::get)
+                              .orElseThrow(() -> MatingException.parentNotFound(pair.getFatherId(), null));
+
+         validateParents(mother, father);
+         // Resolved here, in the worker thread: thread-local generators must not cross threads
+         RandomGenerator random = generatorFor(pair.getSeed());
+         return MatingResult.success(pair, breed(mother, father, inbreedingRisk.applyAsInt(mother, father), random));
+      }
+      catch (MatingException e) 
+      {  return MatingResult.failure(pair, e);
+      }
+      catch (RuntimeException e) 
+      {  log.warn("Unexpected failure mating pair {}/{}", pair.getMotherId(), pair.getFatherId(), e);
+         return MatingResult.failure(pair, MatingException.unknown(null, e));
+      }
    }
 
 
@@ -111,15 +522,33 @@ public class PetService
    *
    *  @throws MatingException if mating is not possible.
    */
-   private List<Pet> mate(Pet mother, Pet father) 
+   private List<Pet> mate(Pet mother, Pet father, RandomGenerator random) 
    {  log.debug("");
 
       validateParents(mother, father);
       log.debug("parents validated");
 
+      return breed(mother, father, calculateInbreedingRisk(mother, father), random);
+   }
+
+
+   private RandomGenerator generatorFor(Long seed) 
+   {  return seed != null ? randomSource.seeded(seed) : randomSource.current();
+   }
+
+
+  /**
+   * Produces the litter of two validated parents.
+   *
+   * @param inbreedingRisk the parents' inbreeding risk (see {@link #calculateInbreedingRisk(Pet, Pet)}),
+   *                       computed once for the whole litter
+   * @param random         all random draws of the litter come from this generator, in a fixed order
+   */
+   private List<Pet> breed(Pet mother, Pet father, int inbreedingRisk, RandomGenerator random) 
+   {
       Species species = mother.getSpecies(); // both species are assumed equal and validated
 
-      int litterSize = randomizeLitterSize(species.getAvgLitterSize());
+      int litterSize = randomizeLitterSize(species.getAvgLitterSize(), random);
       log.debug("litterSize = {}", litterSize);
 
       List<Pet> offspring = new ArrayList<>();
@@ -137,16 +566,16 @@ public class PetService
          baby.setName(baseName + "-" + i);
 
          // Traits: randomize within reason
-         baby.setCoatColor(randomCoatColorLike(mother, father));
-         baby.setEyeColor(randomEyeColorLike(mother, father));
+         baby.setCoatColor(randomCoatColorLike(mother, father, random));
+         baby.setEyeColor(randomEyeColorLike(mother, father, random));
          baby.setSex(random.nextBoolean() ? Sex.MALE : Sex.FEMALE);
 
          // Degeneracy increases if parents are old
-         int degeneracy = calculateDegeneracy(mother, father);
+         int degeneracy = calculateDegeneracy(mother, father, inbreedingRisk, random);
          baby.setDegeneracyScore(degeneracy);
 
          // Sterility chance increases with degeneracy
-         baby.setSterile(probablySterile(degeneracy));
+         baby.setSterile(probablySterile(degeneracy, random));
 
          offspring.add(baby);
       }
@@ -195,8 +624,8 @@ public class PetService
 
 
 
-    private int randomizeLitterSize(int average) 
-    {   return Math.max(1, average + random.nextInt(3) - 1); // average ±1
+    private int randomizeLitterSize(int average, RandomGenerator random) 
+    {   return BreedingRules.litterSize(average, random); // average ±1
     }
 
 
@@ -205,11 +634,11 @@ public class PetService
     }
 
 
-    private String randomCoatColorLike(Pet p1, Pet p2) 
+    private String randomCoatColorLike(Pet p1, Pet p2, RandomGenerator random) 
     {   return random.nextBoolean() ? p1.getCoatColor() : p2.getCoatColor();
     }
 
-    private String randomEyeColorLike(Pet p1, Pet p2) 
+    private String randomEyeColorLike(Pet p1, Pet p2, RandomGenerator random) 
     {   return random.nextBoolean() ? p1.getEyeColor() : p2.getEyeColor();
     }
 
@@ -219,97 +648,50 @@ public class PetService
     * 
     * @param mother    Parent 1
     * @param father    Parent 2
+    * @param inbreedingRisk the parents' inbreeding risk, 0 to 100
+    * @param random    source of the score's noise
     * @return a degeneracy score from 0 to 100.
     */
-   private int calculateDegeneracy(Pet mother, Pet father) 
+   private int calculateDegeneracy(Pet mother, Pet father, int inbreedingRisk, RandomGenerator random) 
    {
-      return calculateSmoothDegeneracyScore(mother, father);
+      return calculateSmoothDegeneracyScore(mother, father, inbreedingRisk, random);
    }
 
 
    /**
     * Calculates a smooth degeneracy score for the offspring of two parents.
-    *
-    * Degeneracy is on a scale of 0 to 100.
-    * Higher means probable sterility, reduced health & lifespan.
-    * 
-    * The score is based on:
-    * - Proximity to the end of fertility window (both parents)
-    * - Inbreeding level (based on ancestry up to great-grandparents)
+    * See {@link BreedingRules#degeneracyScore}.
     */
-   private int calculateSmoothDegeneracyScore(Pet mother, Pet father) 
+   private int calculateSmoothDegeneracyScore(Pet mother, Pet father, int inbreedingRisk, RandomGenerator random) 
    {
-    int fertilityRisk = calculateFertilityWindowRisk(mother) + 
-                        calculateFertilityWindowRisk(father); // 0 to 200
-    int inbreedingRisk = calculateInbreedingRisk(mother, father); // 0 to 100
-
-    // Combine with weighted average (fertility is 0–200, so we normalize it)
-    float normalizedFertility = fertilityRisk / 2f; // Bring back to 0–100
-    float weightedScore = 0.4f * normalizedFertility + 0.6f * inbreedingRisk;
-
-    // Add small randomness: ±10
-    int noise = random.nextInt(20) - 10; // produces value between -10 and +10
-    int finalScore = Math.round(weightedScore) + noise;
-
-    // Clamp between 0 and 100
-    return Math.max(0, Math.min(100, finalScore));
-}
-
+      return BreedingRules.degeneracyScore(calculateFertilityWindowRisk(mother), 
+                                           calculateFertilityWindowRisk(father), 
+                                           inbreedingRisk, random);
+   }
 
 
    /**
-    * Calculates a smoothed fertility risk score based on the pet's age relative to its fertility window.
-    * 
-    * <p>This score reflects how close the pet is to the end of its fertile lifespan, using a non-linear
-    * curve for a more biologically realistic progression. The result is an integer between 0 and 100:</p>
-    * 
-    * <ul>
-    *   <li><b>0</b>: just entered fertility window (minimal risk)</li>
-    *   <li><b>50</b>: midpoint of fertility window</li>
-    *   <li><b>100</b>: at or beyond the end of the fertility window (max risk)</li>
-    * </ul>
-    * 
-    * <p>This implementation uses a cosine interpolation function to produce a smooth, gradual increase in risk
-    * as the pet ages through its fertility window. The curve accelerates gently and flattens out near the ends,
-    * avoiding harsh jumps and better modeling biological aging effects.</p>
-    *
-    * <p>Special cases:
-    * <ul>
-    *   <li>If the pet's age is below or above the fertility window: returns 100</li>
-    *   <li>If the fertility window is invalid (range ≤ 0): returns 100</li>
-    * </ul>
-    * </p>
-    * 
-    * @param pet the pet whose fertility risk is to be evaluated
-    * @return an integer score between 0 (low fertility-related risk) and 100 (very high risk)
+    * Calculates a smoothed fertility risk score based on the pet's age relative to its fertility window,
+    * from 0 (just entered the window) to 100 (at or beyond its end). See {@link BreedingRules#fertilityWindowRisk}.
     */
    private int calculateFertilityWindowRisk(Pet pet) 
    {
-      int age = pet.getAgeInYears();
       FertilityAgeWindow window = pet.getSpecies().getFertilityAgeWindow();
-
-      int start = window.getFrom();
-      int end = window.getTo();
-      int range = end - start;
-
-      if (range <= 0 || age < start || age > end) 
-      {  return 100; // Invalid or outside fertile window → max risk
-      }
-
-      float ratio = (float)(age - start) / range; // normalized to [0, 1]
-      float smooth = (1 - (float)Math.cos(Math.PI * ratio)) / 2f; // cosine-smoothed [0, 1]
-
-      return Math.round(smooth * 100f);
+      return BreedingRules.fertilityWindowRisk(pet.getAgeInYears(), window.getFrom(), window.getTo());
    }
 
 
    /**
     * Calculates a normalized inbreeding risk score between two parent pets.
     * 
-    * <p>Checks for common ancestors up to a given depth (3 generations)
+    * <p>With the default {@link InbreedingRiskStrategy#OVERLAP} strategy, checks for common ancestors up to a given depth (3 generations)
     * and calculates how much of their ancestry tree overlaps. The more ancestors
     * they share, the higher the inbreeding risk score.</p>
     * 
+    * <p>Both ancestries are read from the pedigree closure table in a single query,
+    * see {@link PetAncestryService}, as sorted primitive sets: intersecting them is a
+    * merge that neither boxes nor allocates.</p>
+    * 
     * <p>The result is expressed as a percentage from 0 to 100:
     * <ul>
     *   <li><b>0</b>: completely unrelated</li>
@@ -318,77 +700,55 @@ public class PetService
     * </ul>
     * </p>
     * 
+    * <p>With {@link InbreedingRiskStrategy#KINSHIP}, the score is derived from the offspring's
+    * coefficient of inbreeding instead, see {@link KinshipService}.</p>
+    * 
     * @param mother First parent
     * @param father Second parent
     * @return a float between 0 and 100 representing the inbreeding risk
     */
    private int calculateInbreedingRisk(Pet mother, Pet father) 
    {
-      Set<Long> ancestry1 = collectAncestorIds(mother, 3);
-      Set<Long> ancestry2 = collectAncestorIds(father, 3);
-
-      if (ancestry1.isEmpty() || ancestry2.isEmpty()) {
-         return 50; // Unknown ancestry: medium default risk
-      }
-
-      Set<Long> intersection = new HashSet<>(ancestry1);
-      intersection.retainAll(ancestry2);
-
-      int commonAncestors = intersection.size();
-      int totalAncestors = ancestry1.size() + ancestry2.size();
+      return prefetchInbreedingRisk(List.of(mother, father)).applyAsInt(mother, father);
+   }
 
-      if (commonAncestors == 0) return 0;
 
-      float similarityRatio = (float) commonAncestors / (float) (totalAncestors / 2);
+   /**
+    * Fetches, in a single query, whatever the configured {@link InbreedingRiskStrategy} needs
+    * to score any pair among the given pets, and returns the scoring function.
+    *
+    * <p>The returned function only works on in-memory data and may be called concurrently.</p>
+    */
+   private ToIntBiFunction<Pet, Pet> prefetchInbreedingRisk(List<Pet> pets) 
+   {
+      if (inbreedingRiskStrategy == InbreedingRiskStrategy.KINSHIP) 
+      {  KinshipService.Pedigree pedigree = kinshipService.loadPedigree(pets.stream().map(Pet::getId).toList());
+         return (mother, father) -> kinshipService.riskScore(pedigree, mother.getId(), father.getId());
+      }
 
-      return Math.round(Math.min(100f, similarityRatio * 100f)); // Cap at 100
+      Map<Long, long[]> ancestries = petAncestryService.findAncestorIds(pets, 3);
+      return (mother, father) -> calculateInbreedingRisk(ancestries.get(mother.getId()), 
+                                                         ancestries.get(father.getId()));
    }
 
 
    /**
-    * Recursively collects the IDs of a pet’s ancestors up to a specified number of generations.
-    * 
-    * <p>This function traverses the maternal and paternal lineage and returns
-    * a set of unique ancestor IDs. Used primarily for inbreeding checks.</p>
-    * 
-    * <p>For example, with 3 generations, the result may include:
-    * <ul>
-    *   <li>Parents</li>
-    *   <li>Grandparents</li>
-    *   <li>Great-grandparents</li>
-    * </ul>
-    * </p>
-    * 
-    * @param pet the root pet (offspring) whose ancestry will be explored
-    * @param ancestorsDepth how many generations to explore recursively
-    * @return a set of ancestor IDs (empty if none or null input)
+    * Same as {@link #calculateInbreedingRisk(Pet, Pet)}, from already fetched ancestor id sets.
+    *
+    * @param ancestry1 sorted ancestor ids, see {@link SortedLongSets}
+    * @param ancestry2 sorted ancestor ids, see {@link SortedLongSets}
     */
-   private Set<Long> collectAncestorIds(Pet pet, int ancestorsDepth) 
+   private static int calculateInbreedingRisk(long[] ancestry1, long[] ancestry2) 
    {
-      Set<Long> ids = new HashSet<>();
-      if (pet == null || ancestorsDepth <= 0) return ids;
-
-      if (pet.getMother() != null) {
-         ids.add(pet.getMother().getId());
-         ids.addAll(collectAncestorIds(pet.getMother(), ancestorsDepth - 1));
-      }
+      // Unknown (empty) ancestries are scored by BreedingRules, as in the inbreeding matrix
+      int commonAncestors = SortedLongSets.intersectionSize(ancestry1, ancestry2);
 
-      if (pet.getFather() != null) {
-         ids.add(pet.getFather().getId());
-         ids.addAll(collectAncestorIds(pet.getFather(), ancestorsDepth - 1));
-      }
-
-      return ids;
+      return BreedingRules.inbreedingRiskScore(ancestry1.length, ancestry2.length, commonAncestors);
    }
 
 
-
-    private boolean probablySterile(int degeneracy) 
-    {
-        int threshold = 70;
-        if (degeneracy < threshold) return false;
-        int chance = degeneracy - threshold;
-        return random.nextInt(100) < chance;
+    private boolean probablySterile(int degeneracy, RandomGenerator random) 
+    {   return BreedingRules.probablySterile(degeneracy, random);
     }
 }
 
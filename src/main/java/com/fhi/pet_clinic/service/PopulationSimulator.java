@@ -0,0 +1,490 @@
+package com.fhi.pet_clinic.service;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fhi.pet_clinic.dto.GenerationStats;
+import com.fhi.pet_clinic.model.Sex;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.service.random.RandomSource;
+import com.fhi.pet_clinic.utils.SortedLongSets;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Runs N generations of breeding over a snapshot of a species' population, entirely in memory,
+ * for capacity and genetic-health planning.
+ *
+ * <p>The entity-based code ({@link PetService#mate}) cannot go beyond a few thousand animals. Here,
+ * each animal is a slot in a handful of primitive arrays (struct-of-arrays, see {@link Population}):
+ * about 14 bytes per animal, parents referenced by array index, no object per animal, nothing
+ * for the garbage collector to trace.</p>
+ *
+ * <p>The model:</p>
+ * <ul>
+ *   <li>one generation is one breeding season, i.e. one year: everyone ages by one year, animals
+ *       beyond their species' expected lifespan die;</li>
+ *   <li>each fertile, non-sterile female mates with a random fertile, non-sterile male
+ *       (the checks of {@code PetService.validateParents}, species being the same by construction);</li>
+ *   <li>litters follow the {@link BreedingRules} applied by {@link PetService}: litter size, fertility
+ *       window risk, inbreeding risk over 3 generations (overlap strategy), degeneracy, sterility.</li>
+ * </ul>
+ *
+ * <p>Generations are inherently sequential, but within a generation matings are independent: they are
+ * bred in parallel, in fixed-size chunks, on a dedicated fork-join pool, while the population arrays are
+ * only read. Offspring are appended afterwards, in chunk order. Each chunk has its own generator, seeded
+ * from the simulation's seed, so that a run is reproducible whatever the number of cores.</p>
+ *
+ * <p>The statistics of each generation are handed to a consumer as soon as it is done, so that they can
+ * be streamed to the client while the next one runs.</p>
+ */
+@Service
+@Slf4j
+public class PopulationSimulator
+{
+   /**
+    * Matings bred by one parallel task. Fixed (not derived from the number of cores) so that
+    * results only depend on the seed.
+    */
+   private static final int CHUNK_SIZE = 4096;
+
+   private static final int ANCESTRY_DEPTH = 3; // same as PetService's inbreeding check
+   private static final int MAX_ANCESTORS  = (1 << (ANCESTRY_DEPTH + 1)) - 2;
+
+   // Bits of Population.flags
+   private static final byte FEMALE  = 1;
+   private static final byte STERILE = 2;
+
+   private static final int  INITIAL_CAPACITY = 1024;
+   private static final long NO_ID            = Long.MIN_VALUE;   // unknown parent, while loading
+
+
+   /**
+    * A population, as parallel primitive arrays indexed by animal. Dead animals are kept:
+    * they remain the ancestors of the living ones.
+    */
+   public static final class Population
+   {
+      private final String speciesName;
+      private final int    fertileFrom;
+      private final int    fertileTo;
+      private final int    lifespan;
+      private final int    avgLitterSize;
+
+      private int    size;        // animals ever, dead ones included
+      private int[]  mother;      // index of the mother, -1 if unknown
+      private int[]  father;      // index of the father, -1 if unknown
+      private int[]  birthYear;   // relative to the snapshot (year 0): negative for pets already born
+      private byte[] degeneracy;
+      private byte[] flags;       // FEMALE, STERILE
+
+      private Population(Species species, int capacity)
+      {  this.speciesName   = species.getName();
+         this.fertileFrom   = species.getFertilityAgeWindow().getFrom();
+         this.fertileTo     = species.getFertilityAgeWindow().getTo();
+         this.lifespan      = species.getExpectedLifespan();
+         this.avgLitterSize = species.getAvgLitterSize();
+         this.mother        = new int[capacity];
+         this.father        = new int[capacity];
+         this.birthYear     = new int[capacity];
+         this.degeneracy    = new byte[capacity];
+         this.flags         = new byte[capacity];
+      }
+
+      public String getSpeciesName()
+      {  return speciesName;
+      }
+
+      public int size()
+      {  return size;
+      }
+
+      private int ageAt(int animal, int year)
+      {  return year - birthYear[animal];
+      }
+
+      private boolean isAliveAt(int animal, int year)
+      {  return ageAt(animal, year) <= lifespan;
+      }
+
+      private boolean canBreedAt(int animal, int year)
+      {  return (flags[animal] & STERILE) == 0
+             && BreedingRules.isFertile(ageAt(animal, year), fertileFrom, fertileTo);
+      }
+
+      private int add(int motherIndex, int fatherIndex, int year, int degeneracyScore, byte animalFlags)
+      {
+         if (size == mother.length)
+         {  int capacity = Math.max(16, size + (size >> 1));
+            mother     = Arrays.copyOf(mother, capacity);
+            father     = Arrays.copyOf(father, capacity);
+            birthYear  = Arrays.copyOf(birthYear, capacity);
+            degeneracy = Arrays.copyOf(degeneracy, capacity);
+            flags      = Arrays.copyOf(flags, capacity);
+         }
+         mother[size]     = motherIndex;
+         father[size]     = fatherIndex;
+         birthYear[size]  = year;
+         degeneracy[size] = (byte) degeneracyScore;
+         flags[size]      = animalFlags;
+         return size++;
+      }
+   }
+
+
+   /**
+    * A prepared simulation: snapshot loaded and parameters validated, ready to {@link #run}.
+    */
+   public final class Simulation
+   {
+      private final Population population;
+      private final int        generations;
+      private final long       seed;
+
+      private Simulation(Population population, int generations, long seed)
+      {  this.population  = population;
+         this.generations = generations;
+         this.seed        = seed;
+      }
+
+      public long getSeed()
+      {  return seed;
+      }
+
+      /**
+       * Runs the simulation, handing each generation's statistics to {@code sink} as soon as it is done.
+       * Stops early if the population dies out.
+       */
+      public void run(Consumer<GenerationStats> sink)
+      {  simulate(population, generations, seed, sink);
+      }
+   }
+
+
+   /**
+    * The offspring bred by one chunk of matings, before they are appended to the population.
+    */
+   private static final class Litters
+   {
+      private final int[]  mother;
+      private final int[]  father;
+      private final byte[] degeneracy;
+      private final byte[] flags;
+      private int          births;
+      private long         inbreedingRiskSum;
+
+      private Litters(int capacity)
+      {  mother     = new int[capacity];
+         father     = new int[capacity];
+         degeneracy = new byte[capacity];
+         flags      = new byte[capacity];
+      }
+   }
+
+
+   private final PetRepository     petRepository;
+   private final SpeciesRegistry   speciesRegistry;
+   private final RandomSource      randomSource;
+
+   private final int maxGenerations;
+   private final int maxPopulation;
+   private final int maxIndividuals;
+
+   /**
+    * Dedicated pool, so that a long simulation doesn't starve the common pool.
+    */
+   private final ForkJoinPool pool;
+
+
+   public PopulationSimulator(PetRepository     petRepository,
+                              SpeciesRegistry   speciesRegistry,
+                              RandomSource      randomSource,
+                              @Value("${simulation.max-generations:1000}")     int maxGenerations,
+                              @Value("${simulation.max-population:2000000}")   int maxPopulation,
+                              @Value("${simulation.max-individuals:20000000}") int maxIndividuals,
+                              @Value("${simulation.parallelism:0}")            int parallelism)
+   {  this.petRepository     = petRepository;
+      this.speciesRegistry   = speciesRegistry;
+      this.randomSource      = randomSource;
+      this.maxGenerations    = maxGenerations;
+      this.maxPopulation     = maxPopulation;
+      this.maxIndividuals    = maxIndividuals;
+      this.pool              = new ForkJoinPool(parallelism > 0 ? parallelism
+                                                                : Runtime.getRuntime().availableProcessors());
+   }
+
+   @PreDestroy
+   public void shutdown()
+   {  pool.shutdown();
+   }
+
+
+   /**
+    * Loads the population snapshot of a species and validates the parameters of a simulation.
+    * Kept apart from running it, so that errors can still be reported before any statistics are streamed.
+    *
+    * @param seed {@code null} for a random one
+    * @throws IllegalArgumentException on unknown species or out of range parameters
+    */
+   @Transactional(readOnly = true)
+   public Simulation prepare(String speciesName, int generations, Long seed)
+   {
+      if (generations < 1 || generations > maxGenerations)
+      {  throw new IllegalArgumentException("Generations must be between 1 and " + maxGenerations + ": " + generations);
+      }
+      Species species = speciesRegistry.findByName(speciesName)
+                                       .orElseThrow(() -> new IllegalArgumentException("Unknown species: " + speciesName));
+
+      Population population = loadPopulation(species);
+      long actualSeed = seed != null ? seed : randomSource.current().nextLong();
+      return new Simulation(population, generations, actualSeed);
+   }
+
+
+   /**
+    * Streams the snapshot straight into the population's arrays: rows are not kept, and ids are only
+    * held in primitive arrays (sorted, since rows come by id), parents being resolved once all are read.
+    */
+   private Population loadPopulation(Species species)
+   {
+      LocalDate  today      = LocalDate.now();
+      Population population = new Population(species, INITIAL_CAPACITY);
+      long[]     ids        = new long[INITIAL_CAPACITY];
+      long[]     motherIds  = new long[INITIAL_CAPACITY];
+      long[]     fatherIds  = new long[INITIAL_CAPACITY];
+
+      try (Stream<Object[]> rows = petRepository.streamPopulationRows(species.getName()))
+      {
+         Iterator<Object[]> iterator = rows.iterator();
+         while (iterator.hasNext())
+         {
+            Object[] row = iterator.next();
+            int animal = population.size();
+            if (animal == maxIndividuals)
+            {  throw new IllegalArgumentException("Population too large to simulate: more than " + maxIndividuals);
+            }
+            if (animal == ids.length)
+            {  int capacity = animal + (animal >> 1);
+               ids       = Arrays.copyOf(ids, capacity);
+               motherIds = Arrays.copyOf(motherIds, capacity);
+               fatherIds = Arrays.copyOf(fatherIds, capacity);
+            }
+            ids[animal]       = ((Number) row[0]).longValue();
+            motherIds[animal] = row[5] != null ? ((Number) row[5]).longValue() : NO_ID;
+            fatherIds[animal] = row[6] != null ? ((Number) row[6]).longValue() : NO_ID;
+
+            LocalDate birthDate = (LocalDate) row[2];
+            int age = birthDate != null ? Period.between(birthDate, today).getYears()
+                                        : population.lifespan / 2;   // same assumption as Pet.getAgeInYears()
+            byte animalFlags = 0;
+            if (row[1] == Sex.FEMALE)               animalFlags |= FEMALE;
+            if (Boolean.TRUE.equals(row[3]))        animalFlags |= STERILE;
+            int degeneracyScore = row[4] != null ? ((Number) row[4]).intValue() : 0;
+
+            population.add(-1, -1, -age, degeneracyScore, animalFlags);
+         }
+      }
+
+      // Parents may have a greater id than their offspring (e.g. imported pets): resolved afterwards
+      int size = population.size();
+      for (int animal = 0; animal < size; animal++)
+      {  population.mother[animal] = indexOf(ids, size, motherIds[animal]);
+         population.father[animal] = indexOf(ids, size, fatherIds[animal]);
+      }
+      log.debug("Population snapshot of {}: {} animal(s)", species.getName(), size);
+      return population;
+   }
+
+   private static int indexOf(long[] ids, int size, long id)
+   {  // Parents outside the snapshot (e.g. another species) are unknown as far as the simulation goes
+      int index = id != NO_ID ? Arrays.binarySearch(ids, 0, size, id) : -1;
+      return index >= 0 ? index : -1;
+   }
+
+
+   private void simulate(Population population, int generations, long seed, Consumer<GenerationStats> sink)
+   {
+      RandomGenerator random = randomSource.seeded(seed);
+
+      int[] living = IntStream.range(0, population.size())
+                              .filter(animal -> population.isAliveAt(animal, 0))
+                              .toArray();
+      int livingCount = living.length;
+
+      for (int year = 1; year <= generations && livingCount > 0; year++)
+      {
+         long start = System.nanoTime();
+         GenerationStats stats = new GenerationStats();
+         stats.setGeneration(year);
+
+         // 1. Ageing: survivors, and who can breed this year
+         int[] females = new int[livingCount];
+         int[] males   = new int[livingCount];
+         int survivors = 0, femaleCount = 0, maleCount = 0;
+         for (int i = 0; i < livingCount; i++)
+         {  int animal = living[i];
+            if (!population.isAliveAt(animal, year)) continue;
+            living[survivors++] = animal;
+            if (population.canBreedAt(animal, year))
+            {  if ((population.flags[animal] & FEMALE) != 0) females[femaleCount++] = animal;
+               else                                          males[maleCount++]     = animal;
+            }
+         }
+         stats.setDeaths(livingCount - survivors);
+         stats.setFertileFemales(femaleCount);
+         stats.setFertileMales(maleCount);
+         livingCount = survivors;
+
+         // 2. Matings: every litter has at least one birth, so there can't be more matings than room left
+         int room    = Math.max(0, Math.min(maxPopulation - livingCount, maxIndividuals - population.size()));
+         int matings = maleCount == 0 ? 0 : Math.min(femaleCount, room);
+         stats.setCapacityReached(matings < femaleCount && maleCount > 0);
+         shuffle(females, femaleCount, random);   // so that capped matings are not biased towards older pets
+
+         // 3. Breeding, in parallel: the population arrays are only read
+         int chunks = (matings + CHUNK_SIZE - 1) / CHUNK_SIZE;
+         long[] chunkSeeds = new long[chunks];
+         for (int c = 0; c < chunks; c++)
+         {  chunkSeeds[c] = random.nextLong();
+         }
+         Litters[] litters = new Litters[chunks];
+         int breedingYear = year, breedingMales = maleCount;
+         pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c ->
+            litters[c] = breedChunk(population, breedingYear, females, c * CHUNK_SIZE,
+                                    Math.min(matings, (c + 1) * CHUNK_SIZE), males, breedingMales,
+                                    randomSource.seeded(chunkSeeds[c]))
+         )).join();
+
+         // 4. Births, in chunk order, up to the room left
+         if (living.length < livingCount + room)
+         {  living = Arrays.copyOf(living, livingCount + room);
+         }
+         int births = 0, sterileBirths = 0;
+         long degeneracySum = 0, inbreedingRiskSum = 0;
+         for (Litters chunk : litters)
+         {  inbreedingRiskSum += chunk.inbreedingRiskSum;
+            for (int b = 0; b < chunk.births; b++)
+            {  if (births == room)
+               {  stats.setCapacityReached(true);
+                  break;
+               }
+               living[livingCount++] = population.add(chunk.mother[b], chunk.father[b], year,
+                                                      chunk.degeneracy[b], chunk.flags[b]);
+               births++;
+               degeneracySum += chunk.degeneracy[b];
+               if ((chunk.flags[b] & STERILE) != 0) sterileBirths++;
+            }
+         }
+
+         stats.setMatings(matings);
+         stats.setBirths(births);
+         stats.setPopulation(livingCount);
+         stats.setMeanInbreedingRisk(matings > 0 ? (double) inbreedingRiskSum / matings : 0d);
+         stats.setMeanDegeneracy(births > 0 ? (double) degeneracySum / births : 0d);
+         stats.setSterileBirthRatio(births > 0 ? (double) sterileBirths / births : 0d);
+         stats.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+         sink.accept(stats);
+      }
+   }
+
+
+   /**
+    * Breeds matings {@code from} (inclusive) to {@code to} (exclusive) of {@code females},
+    * each with a random male.
+    */
+   private static Litters breedChunk(Population population, int year, int[] females, int from, int to,
+                                     int[] males, int maleCount, RandomGenerator random)
+   {
+      Litters litters = new Litters((to - from) * (population.avgLitterSize + 1));   // max litter size
+      long[] motherAncestry = new long[MAX_ANCESTORS];
+      long[] fatherAncestry = new long[MAX_ANCESTORS];
+
+      for (int k = from; k < to; k++)
+      {
+         int mother = females[k];
+         int father = males[random.nextInt(maleCount)];
+
+         int motherFertilityRisk = BreedingRules.fertilityWindowRisk(population.ageAt(mother, year),
+                                                                     population.fertileFrom, population.fertileTo);
+         int fatherFertilityRisk = BreedingRules.fertilityWindowRisk(population.ageAt(father, year),
+                                                                     population.fertileFrom, population.fertileTo);
+
+         int motherAncestors = collectAncestors(population, mother, motherAncestry);
+         int fatherAncestors = collectAncestors(population, father, fatherAncestry);
+         int inbreedingRisk  = BreedingRules.inbreedingRiskScore(
+                                  motherAncestors, fatherAncestors,
+                                  SortedLongSets.intersectionSize(motherAncestry, motherAncestors,
+                                                                  fatherAncestry, fatherAncestors));
+         litters.inbreedingRiskSum += inbreedingRisk;
+
+         int litterSize = BreedingRules.litterSize(population.avgLitterSize, random);
+         for (int i = 0; i < litterSize; i++)
+         {  byte babyFlags = random.nextBoolean() ? FEMALE : 0;
+            int degeneracy = BreedingRules.degeneracyScore(motherFertilityRisk, fatherFertilityRisk,
+                                                           inbreedingRisk, random);
+            if (BreedingRules.probablySterile(degeneracy, random)) babyFlags |= STERILE;
+
+            int b = litters.births++;
+            litters.mother[b]     = mother;
+            litters.father[b]     = father;
+            litters.degeneracy[b] = (byte) degeneracy;
+            litters.flags[b]      = babyFlags;
+         }
+      }
+      return litters;
+   }
+
+
+   /**
+    * Collects the distinct ancestors of an animal, up to {@link #ANCESTRY_DEPTH} generations,
+    * breadth first, into {@code into}, as a sorted set.
+    *
+    * @return the number of ancestors, now at the start of {@code into}
+    */
+   private static int collectAncestors(Population population, int animal, long[] into)
+   {
+      int end = 0;
+      if (population.mother[animal] >= 0) into[end++] = population.mother[animal];
+      if (population.father[animal] >= 0) into[end++] = population.father[animal];
+
+      int generationStart = 0;
+      for (int depth = 2; depth <= ANCESTRY_DEPTH; depth++)
+      {  int generationEnd = end;
+         for (int k = generationStart; k < generationEnd; k++)
+         {  int ancestor = (int) into[k];
+            if (population.mother[ancestor] >= 0) into[end++] = population.mother[ancestor];
+            if (population.father[ancestor] >= 0) into[end++] = population.father[ancestor];
+         }
+         generationStart = generationEnd;
+      }
+      return SortedLongSets.sortDistinct(into, end);
+   }
+
+
+   /**
+    * Fisher-Yates shuffle of the first {@code length} values.
+    */
+   private static void shuffle(int[] values, int length, RandomGenerator random)
+   {
+      for (int i = length - 1; i > 0; i--)
+      {  int j = random.nextInt(i + 1);
+         int tmp = values[i];
+         values[i] = values[j];
+         values[j] = tmp;
+      }
+   }
+}
@@ -0,0 +1,261 @@
+package com.fhi.pet_clinic.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.SpeciesRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * In-process catalogue of all species, loaded at startup and kept in memory.
+ *
+ * <p>Species are a handful of rows, read by nearly every request (listings, pet creation, mating,
+ * simulations) and only ever inserted. Rather than querying (or even asking the second-level cache)
+ * each time, lookups go to an immutable {@link Snapshot}:</p>
+ * <ul>
+ *   <li>by name: one {@code HashMap.get} (a String caches its hash code), returning an {@code Optional}
+ *       built with the snapshot;</li>
+ *   <li>by id: same, in a map by id (the boxed id comes from the {@code Long} cache for the first
+ *       127 species);</li>
+ *   <li>{@code GET /api/species}: the JSON of the whole list, serialized once per snapshot, with a
+ *       hash of it as ETag.</li>
+ * </ul>
+ *
+ * <p>A name or id missing from the snapshot is looked up in the database before being rejected: a
+ * species inserted by another instance of the application (or by SQL) is then loaded, with the rest of
+ * the catalogue. If the database doesn't have it either, the miss is remembered by the snapshot: that
+ * name or id is rejected without a query until the next {@link #create} or {@link #refresh} (up to
+ * {@value #MAX_REMEMBERED_MISSES} of each, so that made-up names can't fill the memory). A species
+ * inserted elsewhere after it was asked for is therefore only seen here after the next refresh.</p>
+ *
+ * <p>Species must be created through {@link #create(Species)}: the snapshot is rebuilt from the
+ * database once the insert is committed and swapped in with a single volatile write, so readers see
+ * either the old catalogue or the new one, never a mix (e.g. a species findable by name but missing
+ * from the JSON list).</p>
+ *
+ * <p>The species handed out are detached and shared by all threads: callers must not modify them.
+ * They can be set as a pet's species (only their id is used then).</p>
+ */
+@Service
+@Slf4j
+public class SpeciesRegistry
+{
+   static final int MAX_REMEMBERED_MISSES = 1000;
+
+   private final SpeciesRepository speciesRepository;
+   private final ObjectMapper      objectMapper;
+
+   private volatile Snapshot snapshot;
+   private final Lock refreshLock = new ReentrantLock();
+
+
+   public SpeciesRegistry(SpeciesRepository speciesRepository, ObjectMapper objectMapper)
+   {  this.speciesRepository = speciesRepository;
+      this.objectMapper      = objectMapper;
+   }
+
+
+   @PostConstruct
+   void load()
+   {  refresh();
+   }
+
+
+   public Optional<Species> findByName(String name)
+   {
+      if (name == null) return Optional.empty();
+      Snapshot current = snapshot;
+      Optional<Species> found = current.byName.get(name);
+      if (found != null) return found;
+      if (current.unknownNames.contains(name)) return Optional.empty();
+      // Not in memory: created elsewhere since the last refresh?
+      if (!speciesRepository.existsByName(name))
+      {  current.remember(current.unknownNames, name);
+         return Optional.empty();
+      }
+      refresh();
+      return snapshot.byName.getOrDefault(name, Optional.empty());
+   }
+
+   public Optional<Species> findById(long id)
+   {
+      Snapshot current = snapshot;
+      Optional<Species> found = current.findById(id);
+      if (found.isPresent() || id <= 0 || current.unknownIds.contains(id)) return found;
+      if (!speciesRepository.existsById(id))
+      {  current.remember(current.unknownIds, id);
+         return found;
+      }
+      refresh();
+      return snapshot.findById(id);
+   }
+
+   /**
+    * @return all species, by ascending id (unmodifiable)
+    */
+   public List<Species> findAll()
+   {  return snapshot.all;
+   }
+
+   /**
+    * The JSON array of all species, by ascending id, as returned by {@code GET /api/species},
+    * with its hash.
+    */
+   public JsonCatalogue findAllAsJson()
+   {  return snapshot.json;
+   }
+
+   /**
+    * @param hash SHA-256 of {@code json}, in hex: the same catalogue has the same hash, whichever instance
+    *             of the application serves it, and across restarts (unlike a change counter)
+    * @param json shared: must not be modified
+    */
+   public record JsonCatalogue(String hash, byte[] json) {}
+
+
+   /**
+    * Creates a species, unless one with that name already exists.
+    *
+    * <p>Under the refresh lock: two requests creating the same species are serialized, the second one
+    * finding the first one's. Another instance of the application can still insert it in between: the
+    * unique constraint on the name then fails the insert, and the species it created is returned.</p>
+    *
+    * @return the created species, or the existing one (with {@code created == false})
+    * @throws DataIntegrityViolationException the insert failed, for another reason than the name
+    */
+   public Registration create(Species species)
+   {
+      refreshLock.lock();
+      try
+      {  Optional<Species> existing = findByName(species.getName());   // reloads if created elsewhere
+         if (existing.isPresent())
+         {  return new Registration(existing.get(), false);
+         }
+         Species saved;
+         try
+         {  saved = speciesRepository.save(species);   // committed on return (repository transaction)
+         }
+         catch (DataIntegrityViolationException e)
+         {  refresh();
+            return new Registration(snapshot.byName.getOrDefault(species.getName(), Optional.empty())
+                                                   .orElseThrow(() -> e), false);
+         }
+         refresh();
+         return new Registration(snapshot.findById(saved.getId()).orElseThrow(), true);
+      }
+      finally
+      {  refreshLock.unlock();
+      }
+   }
+
+   public record Registration(Species species, boolean created) {}
+
+
+   /**
+    * Reloads the whole catalogue and swaps it in.
+    *
+    * <p>Serialized so that concurrent refreshes are applied in order: the last snapshot swapped in
+    * is the last one loaded, which contains everything committed before any of them started.
+    * With a lock rather than {@code synchronized}: a virtual thread blocked on JDBC inside a
+    * synchronized block pins its carrier thread (see the virtual-threads profile).</p>
+    */
+   public void refresh()
+   {
+      refreshLock.lock();
+      try
+      {  List<Species> all = speciesRepository.findAll(Sort.by("id"));
+         byte[] json = toJson(all);
+         snapshot = new Snapshot(all, new JsonCatalogue(sha256(json), json));
+         log.debug("Species registry loaded: {} species", all.size());
+      }
+      finally
+      {  refreshLock.unlock();
+      }
+   }
+
+
+   private byte[] toJson(List<Species> all)
+   {
+      try
+      {  return objectMapper.writeValueAsBytes(all);
+      }
+      catch (JsonProcessingException e)
+      {  throw new IllegalStateException("Cannot serialize species", e);
+      }
+   }
+
+
+   private static String sha256(byte[] json)
+   {
+      try
+      {  return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+      }
+      catch (NoSuchAlgorithmException e)
+      {  throw new IllegalStateException("SHA-256 is not available", e);   // every JVM has it
+      }
+   }
+
+
+   /**
+    * One immutable version of the catalogue, with the names and ids found in neither it nor the
+    * database since it was loaded (dropped with it).
+    */
+   private static final class Snapshot
+   {
+      final List<Species>                  all;
+      final Map<String, Optional<Species>> byName;
+      final Map<Long, Optional<Species>>   byId;
+      final JsonCatalogue                  json;
+
+      final Set<String> unknownNames = ConcurrentHashMap.newKeySet();
+      final Set<Long>   unknownIds   = ConcurrentHashMap.newKeySet();
+
+      Snapshot(List<Species> all, JsonCatalogue json)
+      {
+         this.all  = List.copyOf(all);
+         this.json = json;
+
+         // One Optional per species, shared by both indexes and handed out by every lookup
+         Map<String, Optional<Species>> names = new HashMap<>();
+         Map<Long, Optional<Species>>   ids   = new HashMap<>();
+         for (Species species : all)
+         {  Optional<Species> found = Optional.of(species);
+            names.put(species.getName(), found);
+            ids.put(species.getId(), found);
+         }
+         this.byName = Map.copyOf(names);
+         this.byId   = Map.copyOf(ids);
+      }
+
+      Optional<Species> findById(long id)
+      {  return byId.getOrDefault(id, Optional.empty());
+      }
+
+      /** Past the limit, further misses are simply not remembered: they cost a query each time. */
+      <T> void remember(Set<T> misses, T miss)
+      {
+         if (misses.size() < MAX_REMEMBERED_MISSES)
+         {  misses.add(miss);
+         }
+      }
+   }
+}
@@ -0,0 +1,16 @@
+package com.fhi.pet_clinic.service.exception;
+
+/**
+ * Thrown when a request's precondition can't hold whatever the entity's version: a weak entity tag in
+ * {@code If-Match} (compared strongly, it never matches), or {@code If-Match: *} on an entity that
+ * doesn't exist.
+ *
+ * <p>Translated into 412 (Precondition Failed), see {@code api.exception.ConcurrencyExceptionHandler}.
+ * A stale version is a {@link StaleVersionException}.</p>
+ */
+public class PreconditionFailedException extends RuntimeException
+{
+   public PreconditionFailedException(String message)
+   {  super(message);
+   }
+}
@@ -0,0 +1,27 @@
+package com.fhi.pet_clinic.service.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when an update is based on a version of an entity that is no longer the current one:
+ * someone else updated it in the meantime.
+ *
+ * <p>Translated into 412 (Precondition Failed) when the expected version came from an
+ * {@code If-Match} header, 409 (Conflict) when it came from the request body.
+ * See {@code api.exception.ConcurrencyExceptionHandler}.</p>
+ */
+@Getter
+public class StaleVersionException extends RuntimeException
+{
+   private final long    expectedVersion;
+   private final long    currentVersion;
+   private final boolean precondition;     // expected version given as a precondition (If-Match)
+
+
+   public StaleVersionException(String entityName, long id, long expectedVersion, long currentVersion, boolean precondition)
+   {  super(String.format("%s %d is at version %d, not %d", entityName, id, currentVersion, expectedVersion));
+      this.expectedVersion = expectedVersion;
+      this.currentVersion  = currentVersion;
+      this.precondition    = precondition;
+   }
+}
@@ -0,0 +1,24 @@
+package com.fhi.pet_clinic.service.random;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Where the randomness of the domain logic (litter size, traits, degeneracy noise, sterility...) comes from.
+ *
+ * <p>Pluggable: declare another implementation as a {@code @Primary} bean to replace
+ * {@link ThreadLocalRandomSource}, the default.</p>
+ */
+public interface RandomSource 
+{
+   /**
+    * Returns a generator for use by the calling thread only.
+    * Must not be handed over to other threads.
+    */
+   RandomGenerator current();
+
+   /**
+    * Returns a new generator that always produces the same sequence for the same seed,
+    * so that a piece of work (e.g. a litter) can be replayed exactly.
+    */
+   RandomGenerator seeded(long seed);
+}
@@ -0,0 +1,28 @@
+package com.fhi.pet_clinic.service.random;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Default {@link RandomSource}.
+ *
+ * <p>A single shared {@code java.util.Random} is thread-safe, but all threads then compete on the
+ * CAS of its one seed. Here, each thread draws from its own {@link ThreadLocalRandom}: no shared state,
+ * no contention. Seeded generators are {@link SplittableRandom}s, cheap to create per unit of work.</p>
+ */
+@Component
+public class ThreadLocalRandomSource implements RandomSource 
+{
+   @Override
+   public RandomGenerator current() 
+   {  return ThreadLocalRandom.current();
+   }
+
+   @Override
+   public RandomGenerator seeded(long seed) 
+   {  return new SplittableRandom(seed);
+   }
+}
@@ -0,0 +1,107 @@
+package com.fhi.pet_clinic.utils;
+
+import java.util.Arrays;
+
+
+/**
+ * Sets of {@code long} stored as sorted, duplicate-free {@code long[]}.
+ *
+ * <p>Used for ancestor id sets: compared to a {@code HashSet<Long>}, no boxing, no per-entry
+ * node, and the intersection of two sets is a linear merge that allocates nothing.</p>
+ */
+public class SortedLongSets {
+
+    private SortedLongSets() {}
+
+    public static final long[] EMPTY = new long[0];
+
+
+    /**
+     * Sorts the first {@code length} values of {@code buffer} and removes duplicates, in place.
+     *
+     * @return the number of distinct values, now at the start of {@code buffer}
+     */
+    public static int sortDistinct(long[] buffer, int length) {
+        if (length <= 1) {
+            return length;
+        }
+        Arrays.sort(buffer, 0, length);
+        int distinct = 1;
+        for (int i = 1; i < length; i++) {
+            if (buffer[i] != buffer[distinct - 1]) {
+                buffer[distinct++] = buffer[i];
+            }
+        }
+        return distinct;
+    }
+
+
+    /**
+     * Number of values present in both sets. Allocation-free merge, O(a.length + b.length).
+     *
+     * @param a a sorted, duplicate-free set
+     * @param b a sorted, duplicate-free set
+     */
+    public static int intersectionSize(long[] a, long[] b) {
+        return intersectionSize(a, a.length, b, b.length);
+    }
+
+    /**
+     * Same as {@link #intersectionSize(long[], long[])}, for sets held in the first {@code aLength} /
+     * {@code bLength} values of reused buffers (see {@link #sortDistinct}).
+     */
+    public static int intersectionSize(long[] a, int aLength, long[] b, int bLength) {
+        int i = 0, j = 0, common = 0;
+        while (i < aLength && j < bLength) {
+            long x = a[i], y = b[j];
+            if (x == y) {
+                common++; i++; j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return common;
+    }
+
+
+    /**
+     * Growable {@code long} buffer, to collect values before turning them into a set
+     * without boxing them on the way.
+     */
+    public static class Builder {
+
+        private long[] values;
+        private int size;
+
+        public Builder() {
+            this(16);
+        }
+
+        public Builder(int initialCapacity) {
+            this.values = new long[Math.max(1, initialCapacity)];
+        }
+
+        public Builder add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * @return the distinct values added so far, as a sorted set
+         */
+        public long[] build() {
+            int distinct = sortDistinct(values, size);
+            size = distinct;
+            return distinct == 0 ? EMPTY : Arrays.copyOf(values, distinct);
+        }
+    }
+}
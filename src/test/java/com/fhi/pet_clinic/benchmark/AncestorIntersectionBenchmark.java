@@ -0,0 +1,130 @@
+package com.fhi.pet_clinic.benchmark;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fhi.pet_clinic.utils.SortedLongSets;
+
+
+/**
+ * Compares the former ancestor set intersection of {@code PetService.calculateInbreedingRisk}
+ * (boxed {@code HashSet<Long>}, copied, then {@code retainAll}) with the sorted {@code long[]}
+ * merge of {@link SortedLongSets}.
+ *
+ * <p>Each parent's ancestry is the full tree of the given depth (2 + 4 + ... + 2^depth ancestors),
+ * drawn from an id space sized so that roughly a quarter of the ancestors are shared.</p>
+ *
+ * Run with:
+ * $ mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="AncestorIntersection"
+ * or simply run {@link #main} from the IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AncestorIntersectionBenchmark
+{
+   @Param({ "3", "6", "10" })
+   int depth;
+
+   // Raw ancestor ids, as they come out of the database (unordered, possibly repeated)
+   long[] rawAncestry1;
+   long[] rawAncestry2;
+
+   // Ready-made sets, as handed over by PetAncestryService
+   long[] sortedAncestry1;
+   long[] sortedAncestry2;
+   Set<Long> hashedAncestry1;
+   Set<Long> hashedAncestry2;
+
+
+   @Setup
+   public void setUp()
+   {
+      int size = (1 << (depth + 1)) - 2;
+      SplittableRandom random = new SplittableRandom(42);
+      rawAncestry1 = random.longs(size, 0, 4L * size).toArray();
+      rawAncestry2 = random.longs(size, 0, 4L * size).toArray();
+
+      sortedAncestry1 = toSortedSet(rawAncestry1);
+      sortedAncestry2 = toSortedSet(rawAncestry2);
+      hashedAncestry1 = toHashSet(rawAncestry1);
+      hashedAncestry2 = toHashSet(rawAncestry2);
+   }
+
+
+   /** Former implementation: intersection only. */
+   @Benchmark
+   public int hashSetRetainAll()
+   {
+      Set<Long> intersection = new HashSet<>(hashedAncestry1);
+      intersection.retainAll(hashedAncestry2);
+      return intersection.size();
+   }
+
+   /** Current implementation: intersection only. */
+   @Benchmark
+   public int sortedMerge()
+   {  return SortedLongSets.intersectionSize(sortedAncestry1, sortedAncestry2);
+   }
+
+   /** Former implementation, including building both sets from the raw ids. */
+   @Benchmark
+   public int hashSetBuildAndRetainAll()
+   {
+      Set<Long> ancestry1 = toHashSet(rawAncestry1);
+      Set<Long> ancestry2 = toHashSet(rawAncestry2);
+      Set<Long> intersection = new HashSet<>(ancestry1);
+      intersection.retainAll(ancestry2);
+      return intersection.size();
+   }
+
+   /** Current implementation, including building both sets from the raw ids. */
+   @Benchmark
+   public int sortedBuildAndMerge()
+   {  return SortedLongSets.intersectionSize(toSortedSet(rawAncestry1), toSortedSet(rawAncestry2));
+   }
+
+
+   private static long[] toSortedSet(long[] ids)
+   {
+      SortedLongSets.Builder builder = new SortedLongSets.Builder(ids.length);
+      for (long id : ids)
+      {  builder.add(id);
+      }
+      return builder.build();
+   }
+
+   private static Set<Long> toHashSet(long[] ids)
+   {
+      Set<Long> set = new HashSet<>();
+      for (long id : ids)
+      {  set.add(id);
+      }
+      return set;
+   }
+
+
+   public static void main(String[] args) throws RunnerException
+   {  new Runner(new OptionsBuilder().include(AncestorIntersectionBenchmark.class.getSimpleName()).build()).run();
+   }
+}
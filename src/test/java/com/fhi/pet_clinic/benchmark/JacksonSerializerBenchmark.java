@@ -0,0 +1,141 @@
+package com.fhi.pet_clinic.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fhi.pet_clinic.config.JacksonConfig;
+import com.fhi.pet_clinic.dto.OwnerDto;
+import com.fhi.pet_clinic.dto.PetDto;
+import com.fhi.pet_clinic.model.FertilityAgeWindow;
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.Sex;
+import com.fhi.pet_clinic.model.Species;
+
+
+/**
+ * Compares Jackson's reflective bean serializers with the Blackbird generated accessors
+ * ({@code jackson.bytecode-accessors}, see {@link JacksonConfig}) on list responses (compact JSON):
+ * <ul>
+ *   <li>pet DTOs, as {@code GET /api/pets} and the multi-get return them;</li>
+ *   <li>pet entities with their species and owner (through the {@code @JsonIgnoreProperties("pets")}
+ *       cycle cut), as the mating endpoints return them;</li>
+ *   <li>owner DTOs with 10 pets each, as {@code GET /owners?ids=} returns them.</li>
+ * </ul>
+ *
+ * Run with:
+ * $ mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="JacksonSerializer"
+ * or simply run {@link #main} from the IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonSerializerBenchmark
+{
+   @Param({ "reflection", "bytecode" })
+   String accessors;
+
+   @Param({ "1000", "10000" })
+   int pets;
+
+   ObjectWriter writer;
+
+   List<PetDto>   petDtos;
+   List<Pet>      petEntities;
+   List<OwnerDto> ownerDtos;
+
+
+   @Setup
+   public void setUp()
+   {
+      writer = new JacksonConfig(accessors.equals("bytecode")).objectMapper().writer();
+
+      Species dog = new Species();
+      dog.setId(1L);
+      dog.setName("Dog");
+      dog.setExpectedLifespan(13);
+      dog.setAvgLitterSize(5);
+      FertilityAgeWindow fertility = new FertilityAgeWindow();   // read by Pet.isFertile(), serialized as "fertile"
+      fertility.setFrom(1);
+      fertility.setTo(10);
+      dog.setFertilityAgeWindow(fertility);
+      LocalDate birthDate = LocalDate.of(2020, 1, 1);
+
+      petDtos     = new ArrayList<>(pets);
+      petEntities = new ArrayList<>(pets);
+      ownerDtos   = new ArrayList<>(pets / 10);
+      Owner owner = null;
+      OwnerDto ownerDto = null;
+      for (int i = 0; i < pets; i++)
+      {  if (i % 10 == 0)
+         {  long ownerId = i / 10 + 1;
+            owner = new Owner();
+            owner.setId(ownerId);
+            owner.setName("Owner " + ownerId);
+            owner.setVersion(0L);
+            ownerDto = new OwnerDto(ownerId, owner.getName(), 0L);
+            ownerDto.setPets(new ArrayList<>(10));
+            ownerDtos.add(ownerDto);
+         }
+         long id = i + 1;
+         Sex sex = i % 2 == 0 ? Sex.FEMALE : Sex.MALE;
+         PetDto dto = new PetDto(id, "Pet " + id, sex, dog.getName(), birthDate.plusDays(i),
+                                 owner.getId(), i > 2 ? id - 2 : null, i > 2 ? id - 1 : null, 0L);
+         petDtos.add(dto);
+         ownerDto.getPets().add(dto);
+
+         Pet pet = new Pet();
+         pet.setId(id);
+         pet.setVersion(0L);
+         pet.setName(dto.getName());
+         pet.setSex(sex);
+         pet.setBirthDate(dto.getBirthDate());
+         pet.setSpecies(dog);
+         pet.setOwner(owner);
+         petEntities.add(pet);
+      }
+   }
+
+
+   @Benchmark
+   public byte[] petDtos() throws IOException
+   {  return writer.writeValueAsBytes(petDtos);
+   }
+
+   @Benchmark
+   public byte[] petEntities() throws IOException
+   {  return writer.writeValueAsBytes(petEntities);
+   }
+
+   @Benchmark
+   public byte[] ownerDtos() throws IOException
+   {  return writer.writeValueAsBytes(ownerDtos);
+   }
+
+
+   public static void main(String[] args) throws RunnerException
+   {  new Runner(new OptionsBuilder().include(JacksonSerializerBenchmark.class.getSimpleName()).build()).run();
+   }
+}
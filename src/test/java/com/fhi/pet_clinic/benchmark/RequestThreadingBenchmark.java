@@ -0,0 +1,206 @@
+package com.fhi.pet_clinic.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.web.SecurityFilterChain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.PetClinicApplication;
+
+
+/**
+ * Load test of the two request execution modes: platform threads (Tomcat's pool, the default)
+ * and virtual threads (the {@code virtual-threads} profile, see application.yml).
+ *
+ * <p>The application is started in-process on a random port, seeded with {@value #PETS} pets over
+ * HTTP, then hit by {@value #CLIENTS} concurrent clients, more than the platform-thread pool
+ * ({@code server.tomcat.threads.max}), on:</p>
+ * <ul>
+ *   <li>{@code GET /api/pets?limit=100}: one keyset page, a short JDBC round trip;</li>
+ *   <li>{@code POST /api/pets/mate} (not persisted): pedigree queries plus some CPU for the litter.</li>
+ * </ul>
+ * Throughput is reported in ops/s, latency as a sampled distribution (look at p0.99).
+ *
+ * <p>The application's security is replaced by {@link OpenSecurity} (no authentication, no CSRF token):
+ * what is measured is request execution, not Spring Security's defaults, which would answer 401 to
+ * every request of the benchmark, and 403 to its POSTs.</p>
+ *
+ * <p>The {@code virtual} run needs a Java 21+ JVM: on older ones, Spring Boot silently ignores
+ * {@code spring.threads.virtual.enabled}, so the setup refuses to run rather than measure
+ * platform threads twice. Each mode runs in its own fork, hence its own application.</p>
+ *
+ * Run with:
+ * $ mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="RequestThreading"
+ * or simply run {@link #main} from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(RequestThreadingBenchmark.CLIENTS)
+@Fork(1)
+public class RequestThreadingBenchmark
+{
+   static final int CLIENTS = 400;
+   static final int PETS    = 10_000;
+
+   @Param({ "platform", "virtual" })
+   String threads;
+
+   ConfigurableApplicationContext application;
+   HttpClient   client;
+   HttpRequest  listPets;
+   HttpRequest  mate;
+
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException, InterruptedException
+   {
+      boolean virtual = threads.equals("virtual");
+      if (virtual && Runtime.version().feature() < 21)
+      {  throw new IllegalStateException("Virtual threads need Java 21+, running on " + Runtime.version());
+      }
+
+      SpringApplication app = new SpringApplication(PetClinicApplication.class, OpenSecurity.class);
+      app.setAdditionalProfiles(virtual ? new String[] { OpenSecurity.PROFILE, "virtual-threads" } : new String[] { OpenSecurity.PROFILE });
+      application = app.run("--server.port=0",
+                            "--spring.jpa.show-sql=false",
+                            "--logging.level.root=WARN",
+                            "--logging.level.org.hibernate=WARN");
+      String base = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+
+      client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      seed(base);
+
+      ObjectMapper json = new ObjectMapper();
+      JsonNode page = json.readTree(send(HttpRequest.newBuilder(URI.create(base + "/api/pets?limit=2")).build()));
+      long motherId = page.at("/items/0/id").asLong();   // seeded alternately FEMALE, MALE
+      long fatherId = page.at("/items/1/id").asLong();
+
+      listPets = HttpRequest.newBuilder(URI.create(base + "/api/pets?limit=100")).build();
+      mate     = HttpRequest.newBuilder(URI.create(base + "/api/pets/mate?motherId=" + motherId + "&fatherId=" + fatherId))
+                            .POST(BodyPublishers.noBody())
+                            .build();
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown()
+   {
+      application.close();
+   }
+
+
+   @Benchmark
+   public String listPets() throws IOException, InterruptedException
+   {
+      return send(listPets);
+   }
+
+   @Benchmark
+   public String mate() throws IOException, InterruptedException
+   {
+      return send(mate);
+   }
+
+
+   /**
+    * One species, then {@value #PETS} fertile pets, 10 per owner, through the bulk import.
+    */
+   private void seed(String base) throws IOException, InterruptedException
+   {
+      send(HttpRequest.newBuilder(URI.create(base + "/api/species"))
+                      .header("Content-Type", "application/json")
+                      .POST(BodyPublishers.ofString("""
+                                                    { "name": "Dog", "expectedLifespan": 13, "avgLitterSize": 5,
+                                                      "fertilityAgeWindow": { "from": 1, "to": 10 } }
+                                                    """))
+                      .build());
+
+      String birthDate = LocalDate.now().minusYears(3).toString();
+      StringBuilder owners = new StringBuilder("[");
+      for (int owner = 0; owner < PETS / 10; owner++)
+      {  owners.append(owner == 0 ? "" : ",").append("{\"name\":\"Owner ").append(owner).append("\",\"pets\":[");
+         for (int pet = 0; pet < 10; pet++)
+         {  owners.append(pet == 0 ? "" : ",")
+                  .append("{\"name\":\"Pet ").append(owner * 10 + pet)
+                  .append("\",\"sex\":\"").append(pet % 2 == 0 ? "FEMALE" : "MALE")
+                  .append("\",\"birthDate\":\"").append(birthDate)
+                  .append("\",\"species\":{\"name\":\"Dog\"}}");
+         }
+         owners.append("]}");
+      }
+      send(HttpRequest.newBuilder(URI.create(base + "/owners/import"))
+                      .header("Content-Type", "application/json")
+                      .POST(BodyPublishers.ofString(owners.append("]").toString()))
+                      .build());
+   }
+
+   private String send(HttpRequest request) throws IOException, InterruptedException
+   {
+      HttpResponse<String> response = client.send(request, BodyHandlers.ofString());
+      if (response.statusCode() >= 300)
+      {  throw new IllegalStateException(request.method() + " " + request.uri() + ": " + response.statusCode()
+                                         + " " + response.body());
+      }
+      return response.body();
+   }
+
+
+   /**
+    * Lets every request through, without a CSRF token: this benchmark's clients don't log in.
+    * Only registered by {@link #setUp} (test configurations are not component-scanned), and only
+    * in its profile, so that it can't open the application of the integration tests.
+    */
+   @TestConfiguration
+   @Profile(OpenSecurity.PROFILE)
+   static class OpenSecurity
+   {
+      static final String PROFILE = "benchmark";
+
+      @Bean
+      SecurityFilterChain openFilterChain(HttpSecurity http) throws Exception
+      {  return http.authorizeHttpRequests(requests -> requests.anyRequest().permitAll())
+                   .csrf(AbstractHttpConfigurer::disable)
+                   .build();
+      }
+   }
+
+
+   public static void main(String[] args) throws RunnerException
+   {  new Runner(new OptionsBuilder().include(RequestThreadingBenchmark.class.getSimpleName()).build()).run();
+   }
+}
@@ -0,0 +1,110 @@
+package com.fhi.pet_clinic.benchmark;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fhi.pet_clinic.config.JacksonConfig;
+import com.fhi.pet_clinic.dto.KeysetPage;
+import com.fhi.pet_clinic.dto.PetDto;
+import com.fhi.pet_clinic.model.Sex;
+
+
+/**
+ * Serialization of one page of {@code GET /api/pets} in each wire format of {@link JacksonConfig}:
+ * indented JSON (the former default), compact JSON (the default now), Smile and CBOR.
+ *
+ * <p>Reports serialization throughput; payload sizes are printed once per fork, at setup
+ * (JMH shows the forked JVM's output). Page sizes: the default and the maximum (pagination.*).</p>
+ *
+ * Run with:
+ * $ mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args="WireFormat"
+ * or simply run {@link #main} from the IDE.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark
+{
+   @Param({ "50", "500" })
+   int pageSize;
+
+   KeysetPage<PetDto> page;
+
+   ObjectWriter prettyJson;
+   ObjectWriter compactJson;
+   ObjectWriter smile;
+   ObjectWriter cbor;
+
+
+   @Setup
+   public void setUp() throws IOException
+   {
+      JacksonConfig config = new JacksonConfig(true);
+      ObjectMapper json = config.objectMapper();
+      compactJson = json.writer();
+      prettyJson  = json.writerWithDefaultPrettyPrinter();    // as with ?pretty
+      smile       = config.smileConverter().getObjectMapper().writer();
+      cbor        = config.cborConverter().getObjectMapper().writer();
+
+      List<PetDto> pets = new ArrayList<>(pageSize);
+      LocalDate birthDate = LocalDate.of(2020, 1, 1);
+      for (int i = 1; i <= pageSize; i++)
+      {  pets.add(new PetDto((long) i, "Pet " + i, i % 2 == 0 ? Sex.FEMALE : Sex.MALE, "Dog", birthDate.plusDays(i),
+                             (long) (i / 10 + 1), i > 2 ? (long) (i - 2) : null, i > 2 ? (long) (i - 1) : null, 0L));
+      }
+      page = new KeysetPage<>(pets, (long) pageSize);
+
+      System.out.printf("%n%d pets: pretty JSON %d bytes, compact JSON %d, Smile %d, CBOR %d%n", pageSize,
+                        prettyJson.writeValueAsBytes(page).length, compactJson.writeValueAsBytes(page).length,
+                        smile.writeValueAsBytes(page).length, cbor.writeValueAsBytes(page).length);
+   }
+
+
+   @Benchmark
+   public byte[] prettyJson() throws IOException
+   {  return prettyJson.writeValueAsBytes(page);
+   }
+
+   @Benchmark
+   public byte[] compactJson() throws IOException
+   {  return compactJson.writeValueAsBytes(page);
+   }
+
+   @Benchmark
+   public byte[] smile() throws IOException
+   {  return smile.writeValueAsBytes(page);
+   }
+
+   @Benchmark
+   public byte[] cbor() throws IOException
+   {  return cbor.writeValueAsBytes(page);
+   }
+
+
+   public static void main(String[] args) throws RunnerException
+   {  new Runner(new OptionsBuilder().include(WireFormatBenchmark.class.getSimpleName()).build()).run();
+   }
+}
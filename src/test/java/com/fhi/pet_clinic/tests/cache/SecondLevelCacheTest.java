@@ -0,0 +1,69 @@
+package com.fhi.pet_clinic.tests.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.repo.OwnerRepository;
+import com.fhi.pet_clinic.service.CacheStatisticsService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+// Default profile, on purpose: the "test" profile turns the second-level cache off
+// (see application-test.yml), this class checks that it starts with the application's own settings.
+// Not @Transactional: each repository call runs in its own transaction, so the second read
+// can only come from the cache, not from the persistence context of the first one.
+@SpringBootTest
+class SecondLevelCacheTest
+{
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+
+    @Autowired
+    private OwnerRepository ownerRepository;
+
+
+    @DisplayName("The context boots with the Ehcache regions of ehcache.xml")
+    @Test
+    void contextStartsWithSecondLevelCache()
+    {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+
+        assertThat(sessionFactory.getSessionFactoryOptions().isSecondLevelCacheEnabled()).isTrue();
+        assertThat(sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled()).isTrue();
+        assertThat(cacheStatisticsService.getRegionStatistics())
+            .extracting("region")
+            .contains("owner", "pet", "species", "species-by-name");
+    }
+
+
+    @DisplayName("An owner read twice is served from its region the second time")
+    @Test
+    void secondReadIsACacheHit()
+    {
+        Owner owner = new Owner();
+        owner.setName("Cached owner");
+        Long id = ownerRepository.save(owner).getId();
+
+        CacheRegionStatistics stats = entityManagerFactory.unwrap(SessionFactory.class)
+                                                          .getStatistics()
+                                                          .getCacheRegionStatistics("owner");
+        long hitsBefore = stats.getHitCount();
+
+        assertThat(ownerRepository.findById(id)).isPresent();
+        assertThat(ownerRepository.findById(id)).isPresent();
+
+        assertThat(stats.getHitCount()).isGreaterThan(hitsBefore);
+
+        ownerRepository.deleteById(id);
+    }
+}
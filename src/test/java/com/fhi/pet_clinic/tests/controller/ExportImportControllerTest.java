@@ -0,0 +1,211 @@
+package com.fhi.pet_clinic.tests.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.annotation.MetaSpringBootTestWithJsonSimpleFixtures;
+import com.fhi.pet_clinic.model.FertilityAgeWindow;
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.Sex;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.OwnerRepository;
+import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.repo.SpeciesRepository;
+import com.fhi.pet_clinic.service.ExportService;
+import com.fhi.pet_clinic.service.SpeciesRegistry;
+
+import jakarta.persistence.EntityManager;
+
+
+/**
+ * Integration tests of the NDJSON export and the bulk owner import.
+ *
+ * The export endpoints stream their body after the controller returns, on another thread, outside the
+ * test transaction (which holds the test data): the export is tested through ExportService, which writes
+ * that body. The import runs in the test transaction, and is tested through its endpoint.
+ * Builds its own owners and pets before each test (rolled back after it): Dorothy has Toto and Whiskers,
+ * Harry has Hedwig, Tintin has Milou. Other test classes may have committed theirs: the assertions only
+ * look at these.
+ * Run with:
+ * $ mvn clean test -Dtest=ExportImportControllerTest
+ */
+@MetaSpringBootTestWithJsonSimpleFixtures
+@WithMockUser
+public class ExportImportControllerTest
+{
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    SpeciesRegistry speciesRegistry;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    SpeciesRepository speciesRepository;
+
+    @Autowired
+    OwnerRepository ownerRepository;
+
+    @Autowired
+    PetRepository petRepository;
+
+
+    @BeforeEach
+    void setup()
+    {
+        FertilityAgeWindow fertility = new FertilityAgeWindow();
+        fertility.setFrom(1);
+        fertility.setTo(14);
+        Species lynx = new Species();
+        lynx.setName("Lynx");
+        lynx.setFertilityAgeWindow(fertility);
+        lynx.setExpectedLifespan(15);
+        lynx.setAvgLitterSize(3);
+        speciesRepository.save(lynx);
+
+        Owner dorothy = ownerRepository.save(owner("Dorothy"));
+        Owner harry   = ownerRepository.save(owner("Harry"));
+        Owner tintin  = ownerRepository.save(owner("Tintin"));
+        petRepository.save(pet("Toto",     Sex.MALE,   lynx, dorothy));
+        petRepository.save(pet("Whiskers", Sex.FEMALE, lynx, dorothy));
+        petRepository.save(pet("Hedwig",   Sex.FEMALE, lynx, harry));
+        petRepository.save(pet("Milou",    Sex.MALE,   lynx, tintin));
+
+        speciesRegistry.refresh();   // the species was saved behind its back
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterTransaction
+    void forgetTestSpecies()
+    {   speciesRegistry.refresh();   // rolled back
+    }
+
+
+    @DisplayName("Pet export: one JSON document per line, by ascending id")
+    @Test
+    void exportPets_shouldWriteOneDocumentPerLine() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportPets(out);
+
+        List<JsonNode> lines = ndjson(out);
+        assertThat(lines).hasSize((int) count);
+        assertThat(lines).extracting(pet -> pet.get("id").asLong()).isSorted();
+        assertThat(lines).extracting(pet -> pet.get("name").asText())
+                         .containsSubsequence("Toto", "Whiskers", "Hedwig", "Milou");
+    }
+
+    @DisplayName("Owner export: one JSON document per line")
+    @Test
+    void exportOwners_shouldWriteOneDocumentPerLine() throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportOwners(out);
+
+        List<JsonNode> lines = ndjson(out);
+        assertThat(lines).hasSize((int) count);
+        assertThat(lines).extracting(owner -> owner.get("name").asText())
+                         .containsSubsequence("Dorothy", "Harry", "Tintin");
+    }
+
+
+    @DisplayName("Import: valid pets are imported, invalid ones reported, the rest of the owner kept")
+    @Test
+    void importOwners_shouldImportValidPetsAndReportInvalidOnes() throws Exception
+    {
+        String body = """
+                      [ { "name": "Glinda",
+                          "pets": [ { "name": "Dot",    "sex": "FEMALE", "species": { "name": "Lynx" } },
+                                    { "name": "Nessie", "sex": "FEMALE", "species": { "name": "Unicorn" } } ] } ]
+                      """;
+
+        mockMvc.perform(post("/owners/import").with(csrf())
+                                              .contentType(MediaType.APPLICATION_JSON)
+                                              .content(body))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.owners").value(1))
+               .andExpect(jsonPath("$.pets").value(1))
+               .andExpect(jsonPath("$.errorCount").value(1))
+               .andExpect(jsonPath("$.errors[0].message").value(containsString("Unicorn")))
+               .andExpect(jsonPath("$.complete").value(true));
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportPets(out);
+        assertThat(ndjson(out)).extracting(pet -> pet.get("name").asText()).contains("Dot").doesNotContain("Nessie");
+    }
+
+    @DisplayName("Import of a malformed document: what was read before is kept, the report says incomplete")
+    @Test
+    void importOwners_malformed_shouldReportIncomplete() throws Exception
+    {
+        mockMvc.perform(post("/owners/import").with(csrf())
+                                              .contentType(MediaType.APPLICATION_JSON)
+                                              .content("[ { \"name\": \"Glinda\" }, { \"name\": "))
+               .andExpect(jsonPath("$.owners").value(1))
+               .andExpect(jsonPath("$.complete").value(false));
+    }
+
+
+    /** Parses each line on its own: a line holding anything but one document (or a leading space) fails. */
+    private List<JsonNode> ndjson(ByteArrayOutputStream out) throws Exception
+    {
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertThat(text).endsWith("\n");
+
+        List<JsonNode> documents = new ArrayList<>();
+        for (String line : text.split("\n"))
+        {   assertThat(line).startsWith("{").endsWith("}");
+            documents.add(objectMapper.readTree(line));
+        }
+        return documents;
+    }
+
+    private static Owner owner(String name)
+    {
+        Owner owner = new Owner();
+        owner.setName(name);
+        return owner;
+    }
+
+    private static Pet pet(String name, Sex sex, Species species, Owner owner)
+    {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setSex(sex);
+        pet.setSpecies(species);
+        pet.setOwner(owner);
+        return pet;
+    }
+}
@@ -0,0 +1,131 @@
+package com.fhi.pet_clinic.tests.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.annotation.MetaSpringBootTestWithJsonSimpleFixtures;
+
+
+/**
+ * Integration tests of the background job API: submission (202 + Location), polling, results, failures.
+ *
+ * Jobs run on JobService's worker threads, in their own transactions: they can't see what the test
+ * transaction holds. No fixtures then; the jobs are chosen to give a known result on whatever has been
+ * committed (deleting an id that can't exist, an unknown species).
+ * Run with:
+ * $ mvn clean test -Dtest=JobControllerTest
+ */
+@MetaSpringBootTestWithJsonSimpleFixtures
+@WithMockUser
+public class JobControllerTest
+{
+    static final int  MAX_POLLS     = 100;
+    static final long POLL_INTERVAL = 100;   // ms
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+
+    @DisplayName("Deletion job: 202 with its URL, then SUCCEEDED, with the same report as the synchronous endpoint")
+    @Test
+    void petDeletionJob_shouldSucceedWithReport() throws Exception
+    {
+        MvcResult submitted = mockMvc.perform(post("/api/jobs/pet-deletions").with(csrf())
+                                                                             .contentType(MediaType.APPLICATION_JSON)
+                                                                             .content(objectMapper.writeValueAsString(List.of(Long.MAX_VALUE))))
+                                     .andExpect(status().isAccepted())
+                                     .andExpect(header().exists(HttpHeaders.LOCATION))
+                                     .andExpect(jsonPath("$.type").value("pet-deletion"))
+                                     .andReturn();
+
+        String location = submitted.getResponse().getHeader(HttpHeaders.LOCATION);
+        JsonNode job = awaitFinished(location);
+
+        assertThat(job.get("state").asText()).isEqualTo("SUCCEEDED");
+        assertThat(job.get("processed").asLong()).isEqualTo(1);
+        mockMvc.perform(get(job.get("resultUrl").asText()))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.requested").value(1))
+               .andExpect(jsonPath("$.deleted").value(0));
+    }
+
+    @DisplayName("Export job: the result is the NDJSON file")
+    @Test
+    void petExportJob_shouldServeResultFile() throws Exception
+    {
+        String location = mockMvc.perform(post("/api/jobs/pet-exports").with(csrf()))
+                                 .andExpect(status().isAccepted())
+                                 .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        JsonNode job = awaitFinished(location);
+
+        assertThat(job.get("state").asText()).isEqualTo("SUCCEEDED");
+        mockMvc.perform(get(location + "/result"))
+               .andExpect(status().isOk())
+               .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+    }
+
+    @DisplayName("Failed job: FAILED with the error, and no result (409)")
+    @Test
+    void simulationJob_unknownSpecies_shouldFail() throws Exception
+    {
+        String location = mockMvc.perform(post("/api/jobs/simulations").with(csrf()).param("species", "Unicorn"))
+                                 .andExpect(status().isAccepted())
+                                 .andReturn().getResponse().getHeader(HttpHeaders.LOCATION);
+
+        JsonNode job = awaitFinished(location);
+
+        assertThat(job.get("state").asText()).isEqualTo("FAILED");
+        assertThat(job.get("error").asText()).contains("Unicorn");
+        mockMvc.perform(get(location + "/result"))
+               .andExpect(status().isConflict())
+               .andExpect(jsonPath("$.state").value("FAILED"));
+    }
+
+    @DisplayName("Unknown job: 404")
+    @Test
+    void unknownJob_shouldReturnNotFound() throws Exception
+    {
+        mockMvc.perform(get("/api/jobs/{id}", "no-such-job"))
+               .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/jobs/{id}/result", "no-such-job"))
+               .andExpect(status().isNotFound());
+    }
+
+
+    /** Polls the job until it succeeds or fails, for up to {@value #MAX_POLLS} x {@value #POLL_INTERVAL} ms. */
+    private JsonNode awaitFinished(String location) throws Exception
+    {
+        for (int poll = 0; poll < MAX_POLLS; poll++)
+        {
+            String json = mockMvc.perform(get(location))
+                                 .andExpect(status().isOk())
+                                 .andReturn().getResponse().getContentAsString();
+            JsonNode job = objectMapper.readTree(json);
+            String state = job.get("state").asText();
+            if (state.equals("SUCCEEDED") || state.equals("FAILED"))
+            {   return job;
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+        throw new AssertionError("Job " + location + " not finished after " + MAX_POLLS * POLL_INTERVAL + " ms");
+    }
+}
@@ -0,0 +1,337 @@
+package com.fhi.pet_clinic.tests.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.annotation.MetaSpringBootTestWithJsonSimpleFixtures;
+import com.fhi.pet_clinic.model.FertilityAgeWindow;
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.Sex;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.OwnerRepository;
+import com.fhi.pet_clinic.repo.PetAncestorRepository;
+import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.repo.SpeciesRepository;
+import com.fhi.pet_clinic.service.KinshipService;
+import com.fhi.pet_clinic.service.PetAncestryService;
+import com.fhi.pet_clinic.service.SpeciesRegistry;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Integration tests of the pedigree: closure table, recursive CTE queries, batch mating and kinship.
+ * Builds its own pets before each test (rolled back after it): three generations of wolves,
+ * with full siblings and their offspring.
+ * <pre>
+ *   Rex x Bella   ->  Max, Luna      full siblings
+ *   Luna x Max    ->  Daisy          offspring of full siblings
+ *   Luna x Duke   ->  Rocky          Duke is unrelated
+ * </pre>
+ * They are saved through the repository, not PetService: they have no closure rows.
+ * Run with:
+ * $ mvn clean test -Dtest=PedigreeControllerTest
+ */
+@MetaSpringBootTestWithJsonSimpleFixtures
+@WithMockUser
+@Slf4j
+public class PedigreeControllerTest
+{
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    SpeciesRegistry speciesRegistry;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    SpeciesRepository speciesRepository;
+
+    @Autowired
+    OwnerRepository ownerRepository;
+
+    @Autowired
+    PetRepository petRepository;
+
+    @Autowired
+    PetAncestorRepository petAncestorRepository;
+
+    @Autowired
+    PetAncestryService petAncestryService;
+
+    @Autowired
+    KinshipService kinshipService;
+
+    @Value("${pedigree.mating.max-batch-size}")
+    int maxMatingBatchSize;
+
+    Species wolf;
+    Owner   owner;
+    long rex, bella, max, luna, duke, daisy, rocky;
+
+
+    @BeforeEach
+    void setup()
+    {
+        FertilityAgeWindow fertility = new FertilityAgeWindow();
+        fertility.setFrom(1);
+        fertility.setTo(10);
+        wolf = new Species();
+        wolf.setName("Wolf");
+        wolf.setFertilityAgeWindow(fertility);
+        wolf.setExpectedLifespan(12);   // unknown birth dates count as 6 years old: fertile
+        wolf.setAvgLitterSize(4);
+        speciesRepository.save(wolf);
+
+        owner = new Owner();
+        owner.setName("Dorothy");
+        ownerRepository.save(owner);
+
+        Pet rexPet   = pet("Rex",   Sex.MALE,   null, null);
+        Pet bellaPet = pet("Bella", Sex.FEMALE, null, null);
+        Pet maxPet   = pet("Max",   Sex.MALE,   bellaPet, rexPet);
+        Pet lunaPet  = pet("Luna",  Sex.FEMALE, bellaPet, rexPet);
+        Pet dukePet  = pet("Duke",  Sex.MALE,   null, null);
+        rex   = rexPet.getId();
+        bella = bellaPet.getId();
+        max   = maxPet.getId();
+        luna  = lunaPet.getId();
+        duke  = dukePet.getId();
+        daisy = pet("Daisy", Sex.FEMALE, lunaPet, maxPet).getId();
+        rocky = pet("Rocky", Sex.MALE,   lunaPet, dukePet).getId();
+
+        speciesRegistry.refresh();   // the species was saved behind its back
+        entityManager.flush();       // each request then starts from the database, as in production
+        entityManager.clear();
+    }
+
+    @AfterTransaction
+    void forgetTestSpecies()
+    {   speciesRegistry.refresh();   // rolled back
+    }
+
+
+    @DisplayName("A persisted litter gets its closure rows, its mother's (loaded without any) being backfilled")
+    @Test
+    void mateAndPersist_shouldRecordClosureRows() throws Exception
+    {
+        // GIVEN: Luna has no closure rows
+        assertThat(petAncestorRepository.findIdsWithoutAncestry(List.of(luna))).containsExactly(luna);
+
+        // WHEN
+        String json = mockMvc.perform(post("/api/pets/mate").with(csrf())
+                                                            .param("motherId", Long.toString(luna))
+                                                            .param("fatherId", Long.toString(duke))
+                                                            .param("seed", "7")
+                                                            .param("persist", "true"))
+                             .andExpect(status().isCreated())
+                             .andReturn().getResponse().getContentAsString();
+
+        // THEN
+        List<Long> litter = new ArrayList<>();
+        objectMapper.readTree(json).forEach(pet -> litter.add(pet.get("id").asLong()));
+        assertThat(litter).isNotEmpty();
+
+        Map<Long, Set<Long>> closure = closureOf(litter);
+        assertThat(closure).containsOnlyKeys(litter);
+        assertThat(closure.values()).allSatisfy(ancestors ->
+                assertThat(ancestors).containsExactlyInAnyOrder(luna, duke, rex, bella));
+        assertThat(petAncestorRepository.findIdsWithoutAncestry(List.of(luna))).isEmpty();
+    }
+
+    @DisplayName("Ancestors: each one once, at its shortest depth, closest first")
+    @Test
+    void getAncestors_shouldReturnEachAncestorOnceAtItsShortestDepth() throws Exception
+    {
+        String json = mockMvc.perform(get("/api/pets/{id}/ancestors", daisy).param("generations", "2"))
+                             .andExpect(status().isOk())
+                             .andReturn().getResponse().getContentAsString();
+
+        assertThat(depthsById(json)).isEqualTo(Map.of(daisy, 0, max, 1, luna, 1, rex, 2, bella, 2));
+    }
+
+    @DisplayName("Descendants: children and grandchildren, closest first")
+    @Test
+    void getDescendants_shouldReturnChildrenAndGrandchildren() throws Exception
+    {
+        String json = mockMvc.perform(get("/api/pets/{id}/descendants", bella).param("generations", "2"))
+                             .andExpect(status().isOk())
+                             .andReturn().getResponse().getContentAsString();
+
+        assertThat(depthsById(json)).isEqualTo(Map.of(bella, 0, max, 1, luna, 1, daisy, 2, rocky, 2));
+    }
+
+    @DisplayName("Ancestors of an unknown pet: 404")
+    @Test
+    void getAncestors_ofUnknownPet_shouldReturnNotFound() throws Exception
+    {
+        mockMvc.perform(get("/api/pets/{id}/ancestors", Long.MAX_VALUE))
+               .andExpect(status().isNotFound());
+    }
+
+
+    @DisplayName("Pets without closure rows: ancestry resolved by the recursive query")
+    @Test
+    void findAncestorIds_withoutClosureRows_shouldFallBackToRecursiveQuery()
+    {
+        List<Pet> pets = petRepository.findAllById(List.of(daisy, rocky, rex));
+
+        Map<Long, long[]> ancestry = petAncestryService.findAncestorIds(pets, 2);
+
+        assertThat(ancestry.get(daisy)).containsExactly(sorted(rex, bella, max, luna));
+        assertThat(ancestry.get(rocky)).containsExactly(sorted(rex, bella, luna, duke));
+        assertThat(ancestry.get(rex)).isEmpty();
+    }
+
+
+    @DisplayName("Deleting a pet rebuilds its descendants' closure rows without it")
+    @Test
+    void deletePet_shouldRebuildDescendantsClosure() throws Exception
+    {
+        // GIVEN: the closure rows of the whole pedigree, parents before children
+        petAncestryService.recordAncestry(petRepository.findAllById(List.of(rocky, daisy, luna, max, rex, bella, duke)));
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(closureOf(List.of(daisy)).get(daisy)).containsExactlyInAnyOrder(max, luna, rex, bella);
+
+        // WHEN
+        mockMvc.perform(delete("/api/pets").with(csrf()).param("ids", Long.toString(luna)))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.deleted").value(1));
+        entityManager.clear();
+
+        // THEN: Rex and Bella are still Daisy's grandparents through Max, Rocky only has Duke left
+        Map<Long, Set<Long>> closure = closureOf(List.of(daisy, rocky, luna));
+        assertThat(closure.get(daisy)).containsExactlyInAnyOrder(max, rex, bella);
+        assertThat(closure.get(rocky)).containsExactly(duke);
+        assertThat(closure).doesNotContainKey(luna);
+    }
+
+
+    @DisplayName("Batch mating: one result per pair, in request order, failures included")
+    @Test
+    void mateInBatch_shouldReturnOneResultPerPair() throws Exception
+    {
+        String body = objectMapper.writeValueAsString(List.of(
+                Map.of("motherId", luna,  "fatherId", duke,  "seed", 1),
+                Map.of("motherId", daisy, "fatherId", Long.MAX_VALUE),
+                Map.of("motherId", luna,  "fatherId", duke,  "seed", 1)));
+
+        String json = mockMvc.perform(post("/api/pets/mate/batch").with(csrf())
+                                                                  .contentType(MediaType.APPLICATION_JSON)
+                                                                  .content(body))
+                             .andExpect(status().isOk())
+                             .andExpect(jsonPath("$.length()").value(3))
+                             .andExpect(jsonPath("$[0].motherId").value(luna))
+                             .andExpect(jsonPath("$[0].offspring").isNotEmpty())
+                             .andExpect(jsonPath("$[1].errorCode").value("PARENT_NOT_FOUND"))
+                             .andExpect(jsonPath("$[1].offspring").doesNotExist())
+                             .andReturn().getResponse().getContentAsString();
+
+        // Same pair, same seed: same litter
+        JsonNode results = objectMapper.readTree(json);
+        assertThat(results.get(2).get("offspring")).isEqualTo(results.get(0).get("offspring"));
+    }
+
+    @DisplayName("Batch mating beyond pedigree.mating.max-batch-size pairs: 400")
+    @Test
+    void mateInBatch_tooManyPairs_shouldReturnBadRequest() throws Exception
+    {
+        List<Map<String, Long>> pairs = new ArrayList<>();
+        for (int i = 0; i <= maxMatingBatchSize; i++)
+        {   pairs.add(Map.of("motherId", luna, "fatherId", duke));
+        }
+
+        mockMvc.perform(post("/api/pets/mate/batch").with(csrf())
+                                                    .contentType(MediaType.APPLICATION_JSON)
+                                                    .content(objectMapper.writeValueAsString(pairs)))
+               .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/pets/mate/batch").with(csrf())
+                                                    .contentType(MediaType.APPLICATION_JSON)
+                                                    .content(objectMapper.writeValueAsString(pairs.subList(0, maxMatingBatchSize))))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.length()").value(maxMatingBatchSize));
+    }
+
+
+    @DisplayName("Kinship: Wright's coefficient of inbreeding of known relationships")
+    @Test
+    void coefficientOfInbreeding_shouldMatchKnownRelationships()
+    {
+        KinshipService.Pedigree pedigree = kinshipService.loadPedigree(List.of(rex, bella, max, luna, duke, daisy));
+
+        assertThat(kinshipService.coefficientOfInbreeding(pedigree, luna, max)).isCloseTo(0.25, within(1e-9));   // full siblings
+        assertThat(kinshipService.coefficientOfInbreeding(pedigree, daisy, max)).isCloseTo(0.375, within(1e-9)); // father and daughter, himself brother of her mother
+        assertThat(kinshipService.coefficientOfInbreeding(pedigree, bella, duke)).isZero();                      // unrelated
+        assertThat(kinshipService.riskScore(pedigree, luna, max)).isEqualTo(100);
+    }
+
+
+    private Map<Long, Integer> depthsById(String json) throws Exception
+    {
+        Map<Long, Integer> depths = new HashMap<>();
+        for (JsonNode entry : objectMapper.readTree(json))
+        {   assertThat(depths.put(entry.get("id").asLong(), entry.get("depth").asInt())).as("listed once").isNull();
+        }
+        return depths;
+    }
+
+    /** Ancestor ids of each pet with closure rows, up to the grandparents. */
+    private Map<Long, Set<Long>> closureOf(List<Long> petIds)
+    {
+        Map<Long, Set<Long>> closure = new HashMap<>();
+        for (Object[] row : petAncestorRepository.findAncestorIdPairs(petIds, 2))
+        {   closure.computeIfAbsent((Long) row[0], id -> new TreeSet<>()).add((Long) row[1]);
+        }
+        return closure;
+    }
+
+    private static long[] sorted(long... ids)
+    {   long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private Pet pet(String name, Sex sex, Pet mother, Pet father)
+    {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setSex(sex);
+        pet.setSpecies(wolf);
+        pet.setOwner(owner);
+        pet.setMother(mother);
+        pet.setFather(father);
+        return petRepository.save(pet);
+    }
+}
@@ -0,0 +1,340 @@
+package com.fhi.pet_clinic.tests.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.annotation.MetaSpringBootTestWithJsonSimpleFixtures;
+import com.fhi.pet_clinic.model.FertilityAgeWindow;
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.Sex;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.OwnerRepository;
+import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.repo.SpeciesRepository;
+import com.fhi.pet_clinic.service.SpeciesRegistry;
+
+import jakarta.persistence.EntityManager;
+
+
+/**
+ * Integration tests of the pet and owner API beyond single-entity CRUD: keyset paging, multi-get,
+ * conditional GET (ETag / 304), optimistic concurrency of PATCH (412 / 409) and bulk deletes.
+ * Builds its own pets before each test (rolled back after it): Dorothy has Toto and Whiskers,
+ * Harry has Hedwig.
+ * Run with:
+ * $ mvn clean test -Dtest=PetApiControllerTest
+ */
+@MetaSpringBootTestWithJsonSimpleFixtures
+@WithMockUser
+public class PetApiControllerTest
+{
+    static final String SMILE = "application/x-jackson-smile";
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    SpeciesRegistry speciesRegistry;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    SpeciesRepository speciesRepository;
+
+    @Autowired
+    OwnerRepository ownerRepository;
+
+    @Autowired
+    PetRepository petRepository;
+
+    long dorothy, toto, whiskers, hedwig;
+
+
+    @BeforeEach
+    void setup()
+    {
+        FertilityAgeWindow fertility = new FertilityAgeWindow();
+        fertility.setFrom(1);
+        fertility.setTo(6);
+        Species ferret = new Species();
+        ferret.setName("Ferret");
+        ferret.setFertilityAgeWindow(fertility);
+        ferret.setExpectedLifespan(8);
+        ferret.setAvgLitterSize(6);
+        speciesRepository.save(ferret);
+
+        Owner dorothyOwner = ownerRepository.save(owner("Dorothy"));
+        Owner harryOwner   = ownerRepository.save(owner("Harry"));
+        dorothy  = dorothyOwner.getId();
+        toto     = petRepository.save(pet("Toto",     Sex.MALE,   ferret, dorothyOwner)).getId();
+        whiskers = petRepository.save(pet("Whiskers", Sex.FEMALE, ferret, dorothyOwner)).getId();
+        hedwig   = petRepository.save(pet("Hedwig",   Sex.FEMALE, ferret, harryOwner)).getId();
+
+        speciesRegistry.refresh();   // the species was saved behind its back
+        entityManager.flush();       // each request then starts from the database, as in production
+        entityManager.clear();
+    }
+
+    @AfterTransaction
+    void forgetTestSpecies()
+    {   speciesRegistry.refresh();   // rolled back
+    }
+
+
+    @DisplayName("Keyset paging: one pet per page, by ascending id, until nextAfterId is null")
+    @Test
+    void getPets_shouldPageByAscendingId() throws Exception
+    {
+        String first = mockMvc.perform(get("/api/pets").param("ownerId", Long.toString(dorothy)).param("limit", "1"))
+                              .andExpect(status().isOk())
+                              .andExpect(jsonPath("$.items.length()").value(1))
+                              .andExpect(jsonPath("$.items[0].id").value(toto))
+                              .andExpect(jsonPath("$.nextAfterId").value(toto))
+                              .andReturn().getResponse().getContentAsString();
+
+        String afterId = objectMapper.readTree(first).get("nextAfterId").asText();
+        mockMvc.perform(get("/api/pets").param("ownerId", Long.toString(dorothy)).param("limit", "1").param("afterId", afterId))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.items.length()").value(1))
+               .andExpect(jsonPath("$.items[0].id").value(whiskers))
+               .andExpect(jsonPath("$.nextAfterId").doesNotExist());
+    }
+
+    @DisplayName("Multi-get: pets in the order asked for, unknown ids listed as missing")
+    @Test
+    void getPetsByIds_shouldKeepRequestOrderAndListMissing() throws Exception
+    {
+        mockMvc.perform(get("/api/pets").param("ids", whiskers + "," + Long.MAX_VALUE + "," + toto))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.items.length()").value(2))
+               .andExpect(jsonPath("$.items[0].id").value(whiskers))
+               .andExpect(jsonPath("$.items[1].id").value(toto))
+               .andExpect(jsonPath("$.missing[0]").value(Long.MAX_VALUE));
+    }
+
+
+    @DisplayName("Inbreeding matrix: 50 when either ancestry is unknown, as when mating")
+    @Test
+    void getInbreedingMatrix_withOneUnknownAncestry_shouldScoreMedium() throws Exception
+    {
+        Pet whiskersPet = petRepository.findById(whiskers).orElseThrow();
+        Pet mother = petRepository.save(pet("Mama", Sex.FEMALE, whiskersPet.getSpecies(), whiskersPet.getOwner()));
+        Pet father = petRepository.save(pet("Papa", Sex.MALE,   whiskersPet.getSpecies(), whiskersPet.getOwner()));
+        Pet sam    = pet("Sam", Sex.MALE, whiskersPet.getSpecies(), whiskersPet.getOwner());
+        sam.setMother(mother);
+        sam.setFather(father);
+        long samId = petRepository.save(sam).getId();
+        whiskersPet.setMother(mother);
+        whiskersPet.setFather(father);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Whiskers and Sam are full siblings; Toto and Hedwig have no known parents
+        mockMvc.perform(get("/api/pets/inbreeding-matrix").param("ids", toto + "," + whiskers + "," + hedwig + "," + samId))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.femaleIds").value(contains((int) whiskers, (int) hedwig)))
+               .andExpect(jsonPath("$.maleIds").value(contains((int) toto, (int) samId)))
+               .andExpect(jsonPath("$.risks[0]").value(contains(50, 100)))
+               .andExpect(jsonPath("$.risks[1]").value(contains(50, 50)));
+    }
+
+
+    @DisplayName("Conditional GET of a pet: 304 with its ETag, 200 again once patched")
+    @Test
+    void getPet_withCurrentETag_shouldReturnNotModified() throws Exception
+    {
+        String etag = mockMvc.perform(get("/api/pets/{id}", toto))
+                             .andExpect(status().isOk())
+                             .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                             .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/pets/{id}", toto).header(HttpHeaders.IF_NONE_MATCH, etag))
+               .andExpect(status().isNotModified())
+               .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        mockMvc.perform(mergePatch(toto, "{\"name\": \"Toto II\"}").header(HttpHeaders.IF_MATCH, etag))
+               .andExpect(status().isNoContent());
+        entityManager.clear();   // the PATCH is a native update
+
+        mockMvc.perform(get("/api/pets/{id}", toto).header(HttpHeaders.IF_NONE_MATCH, etag))
+               .andExpect(status().isOk())
+               .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+               .andExpect(jsonPath("$.name").value("Toto II"));
+    }
+
+    @DisplayName("Conditional GET of an owner: 304 while neither the owner nor its pets change")
+    @Test
+    void getOwner_withCurrentETag_shouldReturnNotModified() throws Exception
+    {
+        String etag = mockMvc.perform(get("/owners/{id}", dorothy))
+                             .andExpect(status().isOk())
+                             .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("\"0.");
+
+        mockMvc.perform(get("/owners/{id}", dorothy).header(HttpHeaders.IF_NONE_MATCH, etag))
+               .andExpect(status().isNotModified());
+
+        mockMvc.perform(mergePatch(whiskers, "{\"name\": \"Mittens\"}"))
+               .andExpect(status().isNoContent());
+        entityManager.clear();
+
+        mockMvc.perform(get("/owners/{id}", dorothy).header(HttpHeaders.IF_NONE_MATCH, etag))
+               .andExpect(status().isOk());
+    }
+
+    @DisplayName("Other encodings than compact JSON get a weak ETag, which If-None-Match still matches; Vary: Accept")
+    @Test
+    void getPet_inOtherEncodings_shouldReturnWeakETag() throws Exception
+    {
+        mockMvc.perform(get("/api/pets/{id}", toto).param("pretty", ""))
+               .andExpect(status().isOk())
+               .andExpect(header().stringValues(HttpHeaders.ETAG, "W/\"0\""));
+
+        mockMvc.perform(get("/api/pets/{id}", toto).accept(SMILE))
+               .andExpect(status().isOk())
+               .andExpect(content().contentTypeCompatibleWith(SMILE))
+               .andExpect(header().stringValues(HttpHeaders.ETAG, "W/\"0\""))
+               .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+
+        mockMvc.perform(get("/api/pets/{id}", toto).accept(SMILE).header(HttpHeaders.IF_NONE_MATCH, "W/\"0\""))
+               .andExpect(status().isNotModified())
+               .andExpect(header().stringValues(HttpHeaders.ETAG, "W/\"0\""));
+    }
+
+
+    @DisplayName("PATCH with If-Match: 204 with the new version, then 412 with the current one")
+    @Test
+    void patchPet_withStaleIfMatch_shouldReturnPreconditionFailed() throws Exception
+    {
+        mockMvc.perform(mergePatch(toto, "{\"coatColor\": \"White\"}").header(HttpHeaders.IF_MATCH, "\"0\""))
+               .andExpect(status().isNoContent())
+               .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        mockMvc.perform(mergePatch(toto, "{\"coatColor\": \"Black\"}").header(HttpHeaders.IF_MATCH, "\"0\""))
+               .andExpect(status().isPreconditionFailed())
+               .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+               .andExpect(jsonPath("$.code").value("STALE_VERSION"));
+    }
+
+    @DisplayName("PATCH with a weak If-Match, or If-Match: * on an unknown pet: 412, nothing changed")
+    @Test
+    void patchPet_withUnmatchableIfMatch_shouldReturnPreconditionFailed() throws Exception
+    {
+        mockMvc.perform(mergePatch(toto, "{\"name\": \"Toto II\"}").header(HttpHeaders.IF_MATCH, "W/\"0\""))
+               .andExpect(status().isPreconditionFailed())
+               .andExpect(jsonPath("$.code").value("PRECONDITION_FAILED"));
+
+        mockMvc.perform(mergePatch(Long.MAX_VALUE, "{\"name\": \"Nobody\"}").header(HttpHeaders.IF_MATCH, "*"))
+               .andExpect(status().isPreconditionFailed())
+               .andExpect(jsonPath("$.code").value("PRECONDITION_FAILED"));
+
+        mockMvc.perform(get("/api/pets/{id}", toto))
+               .andExpect(jsonPath("$.name").value("Toto"))
+               .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        mockMvc.perform(mergePatch(toto, "{\"name\": \"Toto II\"}").header(HttpHeaders.IF_MATCH, "*"))
+               .andExpect(status().isNoContent());
+    }
+
+    @DisplayName("PATCH with a stale version in the body: 409")
+    @Test
+    void patchPet_withStaleBodyVersion_shouldReturnConflict() throws Exception
+    {
+        mockMvc.perform(mergePatch(toto, "{\"name\": \"Toto II\", \"version\": 0}"))
+               .andExpect(status().isNoContent());
+
+        mockMvc.perform(mergePatch(toto, "{\"name\": \"Toto III\", \"version\": 0}"))
+               .andExpect(status().isConflict())
+               .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+    }
+
+    @DisplayName("PATCH of an unknown pet or field: 404, 400")
+    @Test
+    void patchPet_invalid_shouldBeRejected() throws Exception
+    {
+        mockMvc.perform(mergePatch(Long.MAX_VALUE, "{\"name\": \"Nobody\"}"))
+               .andExpect(status().isNotFound());
+
+        mockMvc.perform(mergePatch(toto, "{\"sex\": \"FEMALE\"}"))
+               .andExpect(status().isBadRequest());
+    }
+
+
+    @DisplayName("Bulk delete of pets: unknown and repeated ids are counted as requested, not deleted")
+    @Test
+    void deletePetsInBulk_shouldCountDeletedPets() throws Exception
+    {
+        mockMvc.perform(post("/api/pets/bulk-delete").with(csrf())
+                                                     .contentType(MediaType.APPLICATION_JSON)
+                                                     .content(objectMapper.writeValueAsString(List.of(toto, hedwig, toto, Long.MAX_VALUE))))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.requested").value(3))
+               .andExpect(jsonPath("$.deleted").value(2));
+
+        mockMvc.perform(get("/api/pets/{id}", toto)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/pets/{id}", hedwig)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/pets/{id}", whiskers)).andExpect(status().isOk());
+    }
+
+    @DisplayName("Bulk delete of owners takes their pets with them")
+    @Test
+    void deleteOwners_shouldDeleteTheirPets() throws Exception
+    {
+        mockMvc.perform(delete("/owners").with(csrf()).param("ids", Long.toString(dorothy)))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.deleted").value(1));
+        entityManager.clear();   // pets deleted by the database (ON DELETE CASCADE)
+
+        mockMvc.perform(get("/api/pets/{id}", toto)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/pets/{id}", whiskers)).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/pets/{id}", hedwig)).andExpect(status().isOk());
+    }
+
+
+    private static MockHttpServletRequestBuilder mergePatch(long petId, String changes)
+    {
+        return patch("/api/pets/{id}", petId).with(csrf())
+                                             .contentType("application/merge-patch+json")
+                                             .content(changes);
+    }
+
+    private static Owner owner(String name)
+    {
+        Owner owner = new Owner();
+        owner.setName(name);
+        return owner;
+    }
+
+    private static Pet pet(String name, Sex sex, Species species, Owner owner)
+    {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setSex(sex);
+        pet.setSpecies(species);
+        pet.setOwner(owner);
+        return pet;
+    }
+}
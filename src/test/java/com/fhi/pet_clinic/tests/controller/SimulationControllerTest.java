@@ -0,0 +1,177 @@
+package com.fhi.pet_clinic.tests.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.transaction.AfterTransaction;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.annotation.MetaSpringBootTestWithJsonSimpleFixtures;
+import com.fhi.pet_clinic.dto.GenerationStats;
+import com.fhi.pet_clinic.model.FertilityAgeWindow;
+import com.fhi.pet_clinic.model.Owner;
+import com.fhi.pet_clinic.model.Pet;
+import com.fhi.pet_clinic.model.Sex;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.OwnerRepository;
+import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.repo.SpeciesRepository;
+import com.fhi.pet_clinic.service.PopulationSimulator;
+import com.fhi.pet_clinic.service.SpeciesRegistry;
+
+import jakarta.persistence.EntityManager;
+
+
+/**
+ * Integration tests of the population simulation: a seed replays the same simulation, which is streamed
+ * as NDJSON. Builds its own population before each test (rolled back after it): four females and
+ * four males, foxes of unknown age (i.e. fertile).
+ * Run with:
+ * $ mvn clean test -Dtest=SimulationControllerTest
+ */
+@MetaSpringBootTestWithJsonSimpleFixtures
+@WithMockUser
+public class SimulationControllerTest
+{
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    PopulationSimulator populationSimulator;
+
+    @Autowired
+    SpeciesRegistry speciesRegistry;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    SpeciesRepository speciesRepository;
+
+    @Autowired
+    OwnerRepository ownerRepository;
+
+    @Autowired
+    PetRepository petRepository;
+
+
+    @BeforeEach
+    void setup()
+    {
+        FertilityAgeWindow fertility = new FertilityAgeWindow();
+        fertility.setFrom(1);
+        fertility.setTo(10);
+        Species fox = new Species();
+        fox.setName("Fox");
+        fox.setFertilityAgeWindow(fertility);
+        fox.setExpectedLifespan(12);   // unknown birth dates count as 6 years old: fertile
+        fox.setAvgLitterSize(4);
+        speciesRepository.save(fox);
+
+        Owner owner = new Owner();
+        owner.setName("Dorothy");
+        ownerRepository.save(owner);
+
+        for (String name : List.of("Bella", "Luna", "Daisy", "Molly"))
+        {   petRepository.save(pet(name, Sex.FEMALE, fox, owner));
+        }
+        for (String name : List.of("Rex", "Max", "Duke", "Rocky"))
+        {   petRepository.save(pet(name, Sex.MALE, fox, owner));
+        }
+
+        speciesRegistry.refresh();   // the species was saved behind its back
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @AfterTransaction
+    void forgetTestSpecies()
+    {   speciesRegistry.refresh();   // rolled back
+    }
+
+
+    @DisplayName("Same seed, same population: the same generations, statistic for statistic")
+    @Test
+    void simulate_withSameSeed_shouldReplaySameGenerations()
+    {
+        List<GenerationStats> first  = simulate(42L);
+        List<GenerationStats> replay = simulate(42L);
+
+        assertThat(first).hasSize(5);
+        assertThat(first.get(0).getMatings()).isPositive();
+        assertThat(replay).isEqualTo(first);
+    }
+
+    @DisplayName("POST /api/simulations: one NDJSON line per generation, the seed in X-Simulation-Seed")
+    @Test
+    void simulateViaController_shouldStreamOneLinePerGeneration() throws Exception
+    {
+        MvcResult started = mockMvc.perform(post("/api/simulations").with(csrf())
+                                                                    .param("species", "Fox")
+                                                                    .param("generations", "5")
+                                                                    .param("seed", "42"))
+                                   .andExpect(status().isOk())
+                                   .andExpect(header().string("X-Simulation-Seed", "42"))
+                                   .andExpect(request().asyncStarted())
+                                   .andReturn();
+
+        String ndjson = mockMvc.perform(asyncDispatch(started))
+                               .andExpect(status().isOk())
+                               .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                               .andReturn().getResponse().getContentAsString();
+
+        List<GenerationStats> streamed = new ArrayList<>();
+        for (String line : ndjson.split("\n"))
+        {   GenerationStats stats = objectMapper.readValue(line, GenerationStats.class);
+            stats.setElapsedMillis(0);
+            streamed.add(stats);
+        }
+        assertThat(streamed).isEqualTo(simulate(42L));
+    }
+
+    @DisplayName("Unknown species: 400, before anything is streamed")
+    @Test
+    void simulate_unknownSpecies_shouldReturnBadRequest() throws Exception
+    {
+        mockMvc.perform(post("/api/simulations").with(csrf()).param("species", "Unicorn"))
+               .andExpect(status().isBadRequest());
+    }
+
+
+    /** Runs 5 generations, timings zeroed: they are the only statistic a seed doesn't determine. */
+    private List<GenerationStats> simulate(long seed)
+    {
+        List<GenerationStats> generations = new ArrayList<>();
+        populationSimulator.prepare("Fox", 5, seed).run(stats ->
+        {   stats.setElapsedMillis(0);
+            generations.add(stats);
+        });
+        return generations;
+    }
+
+    private static Pet pet(String name, Sex sex, Species species, Owner owner)
+    {
+        Pet pet = new Pet();
+        pet.setName(name);
+        pet.setSex(sex);
+        pet.setSpecies(species);
+        pet.setOwner(owner);
+        return pet;
+    }
+}
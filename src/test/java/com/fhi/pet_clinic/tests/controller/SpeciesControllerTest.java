@@ -0,0 +1,52 @@
+package com.fhi.pet_clinic.tests.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fhi.pet_clinic.annotation.MetaSpringBootTestWithJsonSimpleFixtures;
+
+
+/**
+ * Integration tests of the species catalogue, served from memory (see SpeciesRegistry).
+ * Run with:
+ * $ mvn clean test -Dtest=SpeciesControllerTest
+ */
+@MetaSpringBootTestWithJsonSimpleFixtures
+@WithMockUser
+public class SpeciesControllerTest
+{
+    static final String SMILE = "application/x-jackson-smile";
+
+    @Autowired
+    MockMvc mockMvc;
+
+
+    @DisplayName("All species: JSON with an ETag, 304 when sent back")
+    @Test
+    void getAll_withCurrentETag_shouldReturnNotModified() throws Exception
+    {
+        String etag = mockMvc.perform(get("/api/species"))
+                             .andExpect(status().isOk())
+                             .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                             .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/species").header(HttpHeaders.IF_NONE_MATCH, etag))
+               .andExpect(status().isNotModified());
+    }
+
+    @DisplayName("All species in another encoding than JSON: 406")
+    @Test
+    void getAll_asSmile_shouldReturnNotAcceptable() throws Exception
+    {
+        mockMvc.perform(get("/api/species").accept(SMILE))
+               .andExpect(status().isNotAcceptable());
+    }
+}
@@ -0,0 +1,35 @@
+package com.fhi.pet_clinic.tests.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fhi.pet_clinic.service.BreedingRules;
+
+
+/**
+ * Unit tests of the overlap inbreeding risk, the one rule both mating and the inbreeding matrix apply.
+ * Run with:
+ * $ mvn clean test -Dtest=BreedingRulesTest
+ */
+class BreedingRulesTest
+{
+    @DisplayName("Either ancestry unknown (empty): medium risk, whatever the other one")
+    @Test
+    void inbreedingRiskScore_withAnEmptyAncestry_shouldBeMedium()
+    {
+        assertThat(BreedingRules.inbreedingRiskScore(0, 0, 0)).isEqualTo(50);
+        assertThat(BreedingRules.inbreedingRiskScore(0, 6, 0)).isEqualTo(50);
+        assertThat(BreedingRules.inbreedingRiskScore(6, 0, 0)).isEqualTo(50);
+    }
+
+    @DisplayName("Both ancestries known: share of common ancestors")
+    @Test
+    void inbreedingRiskScore_withKnownAncestries_shouldBeTheOverlap()
+    {
+        assertThat(BreedingRules.inbreedingRiskScore(6, 6, 0)).isEqualTo(0);
+        assertThat(BreedingRules.inbreedingRiskScore(6, 6, 3)).isEqualTo(50);
+        assertThat(BreedingRules.inbreedingRiskScore(2, 2, 2)).isEqualTo(100);
+    }
+}
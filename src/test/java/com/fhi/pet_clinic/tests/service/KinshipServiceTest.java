@@ -0,0 +1,71 @@
+package com.fhi.pet_clinic.tests.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fhi.pet_clinic.repo.PetRepository;
+import com.fhi.pet_clinic.service.KinshipService;
+
+
+/**
+ * Unit tests of KinshipService on a mocked pedigree, searching one generation on each side
+ * (recursion depth 2), so that the depth limit is reached with a few pets:
+ * <pre>
+ *   Grandma  ->  Mother             (Grandma's mother is known, not loaded)
+ *   Mother x Sire  ->  Pup
+ * </pre>
+ * Run with:
+ * $ mvn clean test -Dtest=KinshipServiceTest
+ */
+class KinshipServiceTest
+{
+    // The mother has a larger id than her pup (imported after it): ids can't tell who is the ancestor
+    static final long GRANDMA_MOTHER = 1, GRANDMA = 2, PUP = 3, SIRE = 4, MOTHER = 5;
+
+    KinshipService kinshipService;
+
+
+    @BeforeEach
+    void setup()
+    {
+        PetRepository petRepository = mock(PetRepository.class);
+        when(petRepository.findPedigreeLinks(any(), anyInt())).thenReturn(List.of(
+                new Object[] { PUP,     MOTHER,         SIRE },
+                new Object[] { MOTHER,  GRANDMA,        null },
+                new Object[] { SIRE,    null,           null },
+                new Object[] { GRANDMA, GRANDMA_MOTHER, null }));
+        kinshipService = new KinshipService(petRepository, 1, 1000);
+    }
+
+
+    @DisplayName("Parent and child with as many generations above both as the depth: parent-child kinship")
+    @Test
+    void parentAndChild_atTheDepthLimit_shouldExpandTheChild()
+    {
+        KinshipService.Pedigree pedigree = kinshipService.loadPedigree(List.of(MOTHER, PUP));
+
+        // Both have 2 generations of ancestry within the depth: the mother must still not be expanded
+        assertThat(kinshipService.coefficientOfInbreeding(pedigree, MOTHER, PUP)).isCloseTo(0.25, within(1e-9));
+    }
+
+    @DisplayName("Pets the pedigree wasn't loaded for: rejected, their ancestors may be cut short")
+    @Test
+    void petsNotLoadedFor_shouldBeRejected()
+    {
+        KinshipService.Pedigree pedigree = kinshipService.loadPedigree(List.of(PUP));
+
+        assertThatThrownBy(() -> kinshipService.coefficientOfInbreeding(pedigree, MOTHER, SIRE))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,77 @@
+package com.fhi.pet_clinic.tests.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fhi.pet_clinic.model.Species;
+import com.fhi.pet_clinic.repo.SpeciesRepository;
+import com.fhi.pet_clinic.service.SpeciesRegistry;
+
+
+/**
+ * Unit tests of the lookups of SpeciesRegistry, on a mocked repository: which ones reach the database.
+ * Run with:
+ * $ mvn clean test -Dtest=SpeciesRegistryTest
+ */
+class SpeciesRegistryTest
+{
+    SpeciesRepository speciesRepository;
+    SpeciesRegistry   speciesRegistry;
+
+
+    @BeforeEach
+    void setup()
+    {
+        Species dog = new Species();
+        dog.setId(1L);
+        dog.setName("Dog");
+
+        speciesRepository = mock(SpeciesRepository.class);
+        when(speciesRepository.findAll(any(Sort.class))).thenReturn(List.of(dog));
+        speciesRegistry = new SpeciesRegistry(speciesRepository, new ObjectMapper());
+        speciesRegistry.refresh();
+    }
+
+
+    @DisplayName("Known species: found by name and id without a query")
+    @Test
+    void knownSpecies_shouldBeFoundInMemory()
+    {
+        assertThat(speciesRegistry.findByName("Dog")).map(Species::getId).contains(1L);
+        assertThat(speciesRegistry.findById(1L)).map(Species::getName).contains("Dog");
+
+        verify(speciesRepository, times(0)).existsByName(any());
+        verify(speciesRepository, times(0)).existsById(any());
+    }
+
+    @DisplayName("Unknown name or id: one query, then rejected from memory until the next refresh")
+    @Test
+    void unknownSpecies_shouldBeQueriedOncePerRefresh()
+    {
+        for (int i = 0; i < 3; i++)
+        {   assertThat(speciesRegistry.findByName("Unicorn")).isEmpty();
+            assertThat(speciesRegistry.findById(42L)).isEmpty();
+        }
+        verify(speciesRepository, times(1)).existsByName("Unicorn");
+        verify(speciesRepository, times(1)).existsById(42L);
+
+        speciesRegistry.refresh();
+
+        assertThat(speciesRegistry.findByName("Unicorn")).isEmpty();
+        assertThat(speciesRegistry.findById(42L)).isEmpty();
+        verify(speciesRepository, times(2)).existsByName("Unicorn");
+        verify(speciesRepository, times(2)).existsById(42L);
+    }
+}